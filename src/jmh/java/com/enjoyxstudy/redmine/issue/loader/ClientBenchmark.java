@@ -0,0 +1,88 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.enjoyxstudy.redmine.issue.loader.client.Client;
+import com.enjoyxstudy.redmine.issue.loader.client.Issue;
+import com.enjoyxstudy.redmine.issue.loader.client.QueryParameter;
+import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueTargetFieldsBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientBenchmark {
+
+    // MockWebServerは応答ごとに40ms程度の待ちが入り通信以外の差が見えないため、疑似Redmineを使用
+    private FakeRedmine server;
+
+    private Client client;
+
+    private Map<String, Object> fields;
+
+    private List<QueryParameter> queryParameters;
+
+    @Setup
+    public void setup() throws IOException {
+
+        fields = new IssueTargetFieldsBuilder()
+                .field(FieldType.PROJECT_ID, "1")
+                .field(FieldType.SUBJECT, "題名")
+                .field(FieldType.DESCRIPTION, "説明")
+                .customField(new CustomField(1, "A"))
+                .build();
+
+        server = new FakeRedmine();
+        server.start();
+        server.addIssue(fields);
+
+        client = Client.builder()
+                .redmineBaseUrl(server.url())
+                .apiKey("apikey1234567890")
+                .build();
+
+        queryParameters = Arrays.asList(
+                new QueryParameter("status_id", "*"),
+                new CustomField(1, "A").getQueryParameter());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public int createIssue() throws IOException {
+        return client.createIssue(fields);
+    }
+
+    @Benchmark
+    public void updateIssue() throws IOException {
+        client.updateIssue(1, fields);
+    }
+
+    @Benchmark
+    public List<Issue> getIssues() throws IOException {
+        return client.getIssues(queryParameters);
+    }
+}
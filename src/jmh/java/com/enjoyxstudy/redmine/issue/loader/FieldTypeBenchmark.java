@@ -0,0 +1,70 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldTypeBenchmark {
+
+    // 変換結果の再利用が効く場合と効かない場合の両方を含むよう、値の種類は多めに用意
+    private static final int VALUE_COUNT = 1024;
+
+    @Param({ "START_DATE", "DUE_DATE", "IS_PRIVATE", "DONE_RATIO", "SUBJECT" })
+    public FieldType type;
+
+    private String[] values;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+
+        values = new String[VALUE_COUNT];
+
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            switch (type) {
+                case START_DATE:
+                case DUE_DATE:
+                    String separator = i % 2 == 0 ? "/" : "-";
+                    values[i] = (2000 + i % 30) + separator + (i % 12 + 1) + separator + (i % 28 + 1);
+                    break;
+                case IS_PRIVATE:
+                    values[i] = i % 2 == 0 ? "TRUE" : "false";
+                    break;
+                case DONE_RATIO:
+                    values[i] = String.valueOf(i % 101);
+                    break;
+                default:
+                    values[i] = "題名" + i;
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public String normalize() {
+
+        String value = values[index];
+        index = (index + 1) & (VALUE_COUNT - 1);
+
+        return type.normalize(value);
+    }
+}
@@ -0,0 +1,94 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.enjoyxstudy.redmine.issue.loader.client.Client;
+import com.enjoyxstudy.redmine.issue.loader.client.IssueBody;
+import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueFields;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueTargetFieldsBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IssueBodyBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private IssueFields fields;
+
+    // 比較用に、同じ内容を汎用のMapとしたもの
+    private Map<String, Object> mapFields;
+
+    @Setup
+    public void setup() {
+
+        // Clientがリクエスト時に使用するものと同じ設定
+        objectMapper = Client.builder()
+                .redmineBaseUrl("http://localhost/")
+                .build()
+                .getObjectMapper();
+
+        fields = build();
+        mapFields = new LinkedHashMap<>(fields);
+    }
+
+    @Benchmark
+    public IssueFields buildFields() {
+        return build();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(new IssueBody(fields));
+    }
+
+    @Benchmark
+    public byte[] serializeMap() throws IOException {
+        return objectMapper.writeValueAsBytes(new IssueBody(mapFields));
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() throws IOException {
+        return objectMapper.writeValueAsBytes(new IssueBody(build()));
+    }
+
+    private static IssueFields build() {
+
+        return new IssueTargetFieldsBuilder(2)
+                .field(FieldType.PROJECT_ID, "1")
+                .field(FieldType.TRACKER_ID, "2")
+                .field(FieldType.STATUS_ID, "1")
+                .field(FieldType.PRIORITY_ID, "2")
+                .field(FieldType.ASSIGNED_TO_ID, "5")
+                .field(FieldType.SUBJECT, "題名")
+                .field(FieldType.DESCRIPTION, "説明\r\n2行目, \"引用\"")
+                .field(FieldType.START_DATE, "2019-02-01")
+                .field(FieldType.DUE_DATE, "2019-02-20")
+                .field(FieldType.DONE_RATIO, "10")
+                .field(FieldType.IS_PRIVATE, "false")
+                .field(FieldType.ESTIMATED_HOURS, "2.5")
+                .customField(new CustomField(1, "A"))
+                .customField(new CustomField(2, "a"))
+                .build();
+    }
+}
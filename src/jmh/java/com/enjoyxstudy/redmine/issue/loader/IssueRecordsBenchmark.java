@@ -0,0 +1,137 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.enjoyxstudy.redmine.issue.loader.input.Config;
+import com.enjoyxstudy.redmine.issue.loader.input.CsvReaderType;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueRecord;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueRecords;
+import com.enjoyxstudy.redmine.issue.loader.input.LoadMode;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IssueRecordsBenchmark {
+
+    private static final int ROW_COUNT = 10000;
+
+    @Param({ "UTF-8", "MS932" })
+    public String encoding;
+
+    @Param({ "true", "false" })
+    public boolean mappings;
+
+    @Param({ "COMMONS_CSV", "MAPPED" })
+    public CsvReaderType csvReader;
+
+    private Path csvPath;
+
+    private Config config;
+
+    @Setup
+    public void setup() throws IOException {
+
+        csvPath = Files.createTempFile("issues", ".csv");
+
+        // 実際のCSVに近いよう、使用しない列や複数行の説明を含める
+        StringBuilder csv = new StringBuilder(
+                "#,Project,Tracker,Status,Subject,Description,Start date,Due date,% Done,Private,Field1,Memo\r\n");
+        for (int i = 1; i <= ROW_COUNT; i++) {
+            csv.append(i).append(',')
+                    .append(mappings ? "プロジェクト" + (i % 3 + 1) : String.valueOf(i % 3 + 1)).append(',')
+                    .append(mappings ? "トラッカー" + (i % 2 + 1) : String.valueOf(i % 2 + 1)).append(',')
+                    .append(mappings ? "ステータス1" : "1").append(',')
+                    .append("題名").append(i).append(',')
+                    .append("\"説明").append(i).append("\r\n2行目, \"\"引用\"\"\"").append(',')
+                    .append("2019/02/").append(i % 28 + 1).append(',')
+                    .append("2019-3-").append(i % 28 + 1).append(',')
+                    .append(i % 100).append(',')
+                    .append(i % 2 == 0 ? "TRUE" : "false").append(',')
+                    .append("値").append(i % 10).append(',')
+                    .append("使用しない列").append("\r\n");
+        }
+        Files.write(csvPath, csv.toString().getBytes(Charset.forName(encoding)));
+
+        config = new Config();
+        config.setMode(LoadMode.CREATE);
+        config.setReadmineUrl("http://localhost/");
+        config.setCsvEncoding(encoding);
+        config.setCsvReader(csvReader);
+
+        List<FieldSetting> fields = new ArrayList<>();
+        fields.add(field("Project", FieldType.PROJECT_ID, mappings ? "プロジェクト" : null, 3));
+        fields.add(field("Tracker", FieldType.TRACKER_ID, mappings ? "トラッカー" : null, 2));
+        fields.add(field("Status", FieldType.STATUS_ID, mappings ? "ステータス" : null, 1));
+        fields.add(field("Subject", FieldType.SUBJECT, null, 0));
+        fields.add(field("Description", FieldType.DESCRIPTION, null, 0));
+        fields.add(field("Start date", FieldType.START_DATE, null, 0));
+        fields.add(field("Due date", FieldType.DUE_DATE, null, 0));
+        fields.add(field("% Done", FieldType.DONE_RATIO, null, 0));
+        fields.add(field("Private", FieldType.IS_PRIVATE, null, 0));
+
+        FieldSetting customField = field("Field1", FieldType.CUSTOM_FIELD, null, 0);
+        customField.setCustomFieldId(1);
+        fields.add(customField);
+
+        config.setFields(fields);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(csvPath);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+
+        try (IssueRecords issueRecords = IssueRecords.parse(csvPath, config)) {
+            for (IssueRecord issueRecord : issueRecords) {
+                blackhole.consume(issueRecord);
+            }
+        }
+    }
+
+    private static FieldSetting field(String headerName, FieldType type, String mappingPrefix, int mappingCount) {
+
+        FieldSetting fieldSetting = new FieldSetting();
+        fieldSetting.setHeaderName(headerName);
+        fieldSetting.setType(type);
+
+        if (mappingPrefix != null) {
+            Map<String, String> mappings = new HashMap<>();
+            for (int i = 1; i <= mappingCount; i++) {
+                mappings.put(mappingPrefix + i, String.valueOf(i));
+            }
+            fieldSetting.setMappings(mappings);
+        }
+
+        return fieldSetting;
+    }
+}
@@ -0,0 +1,263 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.enjoyxstudy.redmine.issue.loader.input.Config;
+import com.enjoyxstudy.redmine.issue.loader.input.LoadMode;
+import com.enjoyxstudy.redmine.issue.loader.input.MetricsSetting;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.Data;
+
+// 疑似Redmineに対してIssueLoadRunner.executeを実行し、全体の性能を計測する
+// gradlew loadBenchmark -Pbenchmark.args="config.json --rows 10000 --latency 5"
+public class LoadBenchmark {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Data
+    public static class Options {
+
+        private Path configPath;
+
+        private int rows = 10000;
+
+        // JITのウォームアップのため、計測前に流す行数
+        private int warmupRows = 1000;
+
+        private long latencyMillis;
+
+        private long jitterMillis;
+
+        private double parentRatio;
+
+        private int descriptionLength = 100;
+
+        private long seed = 1;
+
+        private Path output = Paths.get("build/reports/load-benchmark/result.json");
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        Options options = parseOptions(args);
+
+        Map<String, Object> result = new LoadBenchmark().run(options);
+
+        Files.createDirectories(options.getOutput().toAbsolutePath().getParent());
+        objectMapper.writeValue(options.getOutput().toFile(), result);
+
+        System.out.println(objectMapper.writeValueAsString(result));
+
+        // OkHttpのスレッドの終了を待たない
+        System.exit(0);
+    }
+
+    public Map<String, Object> run(Options options) throws IOException {
+
+        Path workDir = Files.createTempDirectory("redmine-issue-loader-benchmark");
+
+        if (options.getWarmupRows() > 0) {
+            load(options, options.getWarmupRows(), workDir.resolve("warmup"));
+        }
+
+        Run run = load(options, options.getRows(), workDir.resolve("measure"));
+
+        Config config = Config.of(options.getConfigPath());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", OffsetDateTime.now().toString());
+        result.put("javaVersion", System.getProperty("java.version"));
+        result.put("config", options.getConfigPath().toString());
+        result.put("mode", config.getMode());
+        result.put("parallelism", config.getParallelism());
+        result.put("csvReader", config.getCsvReader());
+        result.put("rows", options.getRows());
+        result.put("serverLatencyMillis", options.getLatencyMillis());
+        result.put("serverJitterMillis", options.getJitterMillis());
+        result.put("loadedCount", run.getLoadedCount());
+        result.put("elapsedMillis", run.getElapsedNanos() / 1_000_000);
+        result.put("rowsPerSecond",
+                Math.round(options.getRows() * 1_000_000_000.0 / run.getElapsedNanos() * 10) / 10.0);
+        result.put("rowLatencyP50Millis", run.getSummary().at("/phases/row/p50Millis").asDouble());
+        result.put("rowLatencyP99Millis", run.getSummary().at("/phases/row/p99Millis").asDouble());
+        result.put("requests", run.getRequestCount());
+        result.put("requestsPerRow", Math.round((double) run.getRequestCount() / options.getRows() * 100) / 100.0);
+        result.put("peakHeapBytes", run.getPeakHeapBytes());
+        result.put("gcCount", run.getGcCount());
+        result.put("gcTimeMillis", run.getGcTimeMillis());
+
+        return result;
+    }
+
+    private Run load(Options options, int rows, Path workDir) throws IOException {
+
+        Files.createDirectories(workDir);
+
+        Config config = Config.of(options.getConfigPath());
+
+        try (FakeRedmine server = new FakeRedmine()) {
+
+            server.start();
+
+            // 親チケットとして参照されるチケット、更新対象のチケットを事前に登録
+            int parentIssueCount = Math.max(1, rows / 100);
+            int existingIssueCount = config.getMode() == LoadMode.UPDATE
+                    ? rows
+                    : options.getParentRatio() > 0 ? parentIssueCount : 0;
+            for (int i = 1; i <= existingIssueCount; i++) {
+                server.addIssue(SyntheticCsvGenerator.existingIssue(config, i));
+            }
+
+            Path csvPath = workDir.resolve("issues.csv");
+            SyntheticCsvGenerator.builder()
+                    .rows(rows)
+                    .seed(options.getSeed())
+                    .parentRatio(options.getParentRatio())
+                    .parentIssueCount(config.getMode() == LoadMode.UPDATE ? rows : parentIssueCount)
+                    .descriptionLength(options.getDescriptionLength())
+                    .build()
+                    .generate(config, csvPath);
+
+            server.setFaults(FakeRedmine.Faults.builder()
+                    .latencyMillis(options.getLatencyMillis())
+                    .jitterMillis(options.getJitterMillis())
+                    .build());
+
+            // 行ごとの出力は計測の邪魔になるので行わず、集計結果をファイルに出力
+            Path summaryPath = workDir.resolve("metrics.json");
+            config.setReadmineUrl(server.url());
+            config.setRowOutput(false);
+            config.setProgressIntervalSeconds(0);
+            config.setMetrics(new MetricsSetting());
+            config.getMetrics().setSummaryFile(summaryPath.toString());
+
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+
+            // 事前の登録やCSVの生成の影響を減らしてから、読み込み処理のみを計測
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            long requestCountBefore = server.getRequestCount();
+            long startNanos = System.nanoTime();
+
+            int loadedCount = runner.execute(config, csvPath);
+
+            Run run = new Run();
+            run.setElapsedNanos(System.nanoTime() - startNanos);
+            run.setPeakHeapBytes(peakHeapBytes());
+            run.setGcCount(gcCount() - gcCountBefore);
+            run.setGcTimeMillis(gcMillis() - gcMillisBefore);
+            run.setLoadedCount(loadedCount);
+            run.setRequestCount(server.getRequestCount() - requestCountBefore);
+            run.setSummary(objectMapper.readTree(
+                    new String(Files.readAllBytes(summaryPath), StandardCharsets.UTF_8)));
+            return run;
+        }
+    }
+
+    private static long peakHeapBytes() {
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static Options parseOptions(String[] args) {
+
+        Options options = new Options();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rows":
+                    options.setRows(Integer.parseInt(args[++i]));
+                    break;
+                case "--warmupRows":
+                    options.setWarmupRows(Integer.parseInt(args[++i]));
+                    break;
+                case "--latency":
+                    options.setLatencyMillis(Long.parseLong(args[++i]));
+                    break;
+                case "--jitter":
+                    options.setJitterMillis(Long.parseLong(args[++i]));
+                    break;
+                case "--parentRatio":
+                    options.setParentRatio(Double.parseDouble(args[++i]));
+                    break;
+                case "--descriptionLength":
+                    options.setDescriptionLength(Integer.parseInt(args[++i]));
+                    break;
+                case "--seed":
+                    options.setSeed(Long.parseLong(args[++i]));
+                    break;
+                case "--output":
+                    options.setOutput(Paths.get(args[++i]));
+                    break;
+                default:
+                    options.setConfigPath(Paths.get(args[i]));
+            }
+        }
+
+        if (options.getConfigPath() == null) {
+            throw new IllegalArgumentException(
+                    "usage: LoadBenchmark <config file> [--rows N] [--warmupRows N] [--latency ms] [--jitter ms]"
+                            + " [--parentRatio 0-1] [--descriptionLength N] [--seed N] [--output file]");
+        }
+
+        return options;
+    }
+
+    @Data
+    private static class Run {
+
+        private long elapsedNanos;
+
+        private long peakHeapBytes;
+
+        private long gcCount;
+
+        private long gcTimeMillis;
+
+        private int loadedCount;
+
+        private long requestCount;
+
+        private JsonNode summary;
+    }
+}
@@ -0,0 +1,159 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import com.enjoyxstudy.redmine.issue.loader.input.Config;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldSetting;
+
+import lombok.Builder;
+import lombok.Value;
+
+// 設定ファイルに合わせた疑似的なCSVファイルを生成
+@Value
+@Builder
+public class SyntheticCsvGenerator {
+
+    private static final LocalDate BASE_DATE = LocalDate.of(2020, 1, 1);
+
+    private final int rows;
+
+    // 同じシードであれば同じ内容となる
+    @Builder.Default
+    private final long seed = 1;
+
+    // 親チケットを指定する行の割合(0〜1、親は既存のparentIssueCount件のチケットから選ぶ)
+    private final double parentRatio;
+
+    @Builder.Default
+    private final int parentIssueCount = 1;
+
+    // 説明の文字数
+    @Builder.Default
+    private final int descriptionLength = 100;
+
+    public void generate(Config config, Path csvPath) throws IOException {
+
+        Random random = new Random(seed);
+
+        List<FieldSetting> fields = config.getFields();
+
+        // マッピングの値から選ぶため、キーの順序を固定して一覧化
+        List<List<String>> mappingKeys = new ArrayList<>();
+        for (FieldSetting field : fields) {
+            mappingKeys.add(field.getMappings() == null
+                    ? null
+                    : new ArrayList<>(new TreeMap<>(field.getMappings()).keySet()));
+        }
+
+        try (Writer writer = Files.newBufferedWriter(csvPath, Charset.forName(config.getCsvEncoding()));
+                CSVPrinter printer = new CSVPrinter(writer, CSVFormat.EXCEL)) {
+
+            List<String> headers = new ArrayList<>();
+            for (FieldSetting field : fields) {
+                headers.add(field.getHeaderName());
+            }
+            printer.printRecord(headers);
+
+            List<String> record = new ArrayList<>();
+            for (int rowNumber = 1; rowNumber <= rows; rowNumber++) {
+
+                record.clear();
+                for (int i = 0; i < fields.size(); i++) {
+                    record.add(value(fields.get(i), mappingKeys.get(i), rowNumber, random));
+                }
+                printer.printRecord(record);
+            }
+        }
+    }
+
+    // 更新時に、CSVのプライマリーキーに対応する既存のチケットとして登録する内容
+    public static Map<String, Object> existingIssue(Config config, int rowNumber) {
+
+        Map<String, Object> issue = new TreeMap<>();
+        issue.put("project_id", "1");
+        issue.put("subject", "Subject " + rowNumber);
+
+        for (FieldSetting field : config.getFields()) {
+            if (field.isPrimaryKey() && field.getCustomFieldId() != null) {
+                Map<String, Object> customField = new TreeMap<>();
+                customField.put("id", field.getCustomFieldId());
+                customField.put("value", primaryKeyValue(rowNumber));
+                issue.put("custom_fields", Collections.singletonList(customField));
+            }
+        }
+
+        return issue;
+    }
+
+    private String value(FieldSetting field, List<String> mappingKeys, int rowNumber, Random random) {
+
+        if (field.isPrimaryKey()) {
+            // 既存のチケットと1対1で対応するよう、行番号から決める
+            return field.getCustomFieldId() != null ? primaryKeyValue(rowNumber) : String.valueOf(rowNumber);
+        }
+
+        if (mappingKeys != null && !mappingKeys.isEmpty()) {
+            return mappingKeys.get(random.nextInt(mappingKeys.size()));
+        }
+
+        switch (field.getType()) {
+            case ISSUE_ID:
+                return String.valueOf(rowNumber);
+            case PARENT_ISSUE_ID:
+                return random.nextDouble() < parentRatio
+                        ? String.valueOf(random.nextInt(parentIssueCount) + 1)
+                        : "";
+            case SUBJECT:
+                return "Subject " + rowNumber;
+            case DESCRIPTION:
+                return text(random, descriptionLength);
+            case START_DATE:
+            case DUE_DATE:
+                return BASE_DATE.plusDays(random.nextInt(365)).toString();
+            case DONE_RATIO:
+                return String.valueOf(random.nextInt(11) * 10);
+            case IS_PRIVATE:
+                return random.nextInt(10) == 0 ? "true" : "false";
+            case ESTIMATED_HOURS:
+                return String.valueOf(random.nextInt(80) / 2.0);
+            case CUSTOM_FIELD:
+                return "value-" + random.nextInt(1000);
+            default:
+                // その他のIDは少数の値に偏らせる
+                return String.valueOf(random.nextInt(3) + 1);
+        }
+    }
+
+    private static String primaryKeyValue(int rowNumber) {
+        return "KEY-" + rowNumber;
+    }
+
+    private static String text(Random random, int length) {
+
+        StringBuilder text = new StringBuilder(length);
+        for (int words = 0; text.length() < length; words++) {
+            if (words > 0) {
+                // 長い説明は10語ごとに改行して複数行とする
+                text.append(words % 10 == 0 ? "\r\n" : " ");
+            }
+            text.append("word").append(random.nextInt(1000));
+        }
+        text.setLength(length);
+
+        return text.toString();
+    }
+}
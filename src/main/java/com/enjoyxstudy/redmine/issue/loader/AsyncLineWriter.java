@@ -0,0 +1,100 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+class AsyncLineWriter implements Closeable {
+
+    // 終了を表す目印(同一インスタンスかで判定)
+    private static final String END = new String();
+
+    private final PrintStream out;
+
+    // 複数ファイルを同時に処理する場合に、どのファイルの出力か分かるよう各行の先頭に付与
+    private final String linePrefix;
+
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+    private final Thread thread;
+
+    AsyncLineWriter(PrintStream out) {
+        this(out, "");
+    }
+
+    AsyncLineWriter(PrintStream out, String linePrefix) {
+
+        this.out = out;
+        this.linePrefix = linePrefix;
+
+        if (out == null) {
+            this.thread = null;
+            return;
+        }
+
+        // 出力が遅くても処理を止めないよう、別スレッドでまとめて書き込む
+        this.thread = new Thread(this::run, "line-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void println(String line) {
+        if (thread != null) {
+            queue.add(line);
+        }
+    }
+
+    @Override
+    public void close() {
+
+        if (thread == null) {
+            return;
+        }
+
+        queue.add(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+
+        List<String> lines = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        String lineSeparator = System.lineSeparator();
+
+        try {
+            while (true) {
+
+                lines.add(queue.take());
+                queue.drainTo(lines);
+
+                boolean end = false;
+                for (String line : lines) {
+                    if (line == END) {
+                        end = true;
+                        break;
+                    }
+                    text.append(linePrefix).append(line).append(lineSeparator);
+                }
+
+                out.print(text);
+                out.flush();
+
+                lines.clear();
+                text.setLength(0);
+
+                if (end) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.enjoyxstudy.redmine.issue.loader.client.Client;
+import com.enjoyxstudy.redmine.issue.loader.client.Issue;
+import com.enjoyxstudy.redmine.issue.loader.client.IssuesBody;
+import com.enjoyxstudy.redmine.issue.loader.client.QueryParameter;
+import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
+
+import lombok.Getter;
+
+public class CustomFieldIndex {
+
+    public static final int NOT_FOUND = 0;
+
+    public static final int DUPLICATE = -1;
+
+    private static final int PAGE_SIZE = 100;
+
+    @Getter
+    private final int customFieldId;
+
+    // オープンアドレス法のハッシュテーブル(Issueオブジェクトは保持せず、値とIDのみ保持)
+    private String[] values = new String[1024];
+
+    private int[] issueIds = new int[1024];
+
+    @Getter
+    private int size;
+
+    public CustomFieldIndex(int customFieldId) {
+        this.customFieldId = customFieldId;
+    }
+
+    public static CustomFieldIndex load(Client client, int customFieldId, List<Integer> projectIds)
+            throws IOException {
+
+        CustomFieldIndex index = new CustomFieldIndex(customFieldId);
+
+        // プロジェクトの指定が無い場合は全プロジェクトが対象
+        List<Integer> targetProjectIds = projectIds == null || projectIds.isEmpty()
+                ? Collections.singletonList(null)
+                : projectIds;
+
+        for (Integer projectId : targetProjectIds) {
+
+            int offset = 0;
+            while (true) {
+
+                List<QueryParameter> queryParameters = new ArrayList<>(Arrays.asList(
+                        new QueryParameter("status_id", "*"), // 終了しているチケットも対象にするため指定
+                        new QueryParameter("limit", String.valueOf(PAGE_SIZE)),
+                        new QueryParameter("offset", String.valueOf(offset))));
+                if (projectId != null) {
+                    queryParameters.add(new QueryParameter("project_id", projectId.toString()));
+                }
+
+                IssuesBody issuesBody = client.searchIssues(queryParameters);
+                for (Issue issue : issuesBody.getIssues()) {
+                    index.put(issue);
+                }
+
+                offset += issuesBody.getIssues().size();
+                if (issuesBody.getIssues().isEmpty() || offset >= issuesBody.getTotalCount()) {
+                    break;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    public int get(String value) {
+
+        int slot = indexOf(value);
+        return values[slot] == null ? NOT_FOUND : issueIds[slot];
+    }
+
+    private void put(Issue issue) {
+
+        if (issue.getCustomFields() == null) {
+            return;
+        }
+
+        for (CustomField customField : issue.getCustomFields()) {
+            if (customField.getId() == customFieldId && customField.getValue() != null
+                    && !customField.getValue().isEmpty()) {
+                put(customField.getValue(), issue.getId());
+            }
+        }
+    }
+
+    void put(String value, int issueId) {
+
+        int slot = indexOf(value);
+
+        if (values[slot] == null) {
+            values[slot] = value;
+            issueIds[slot] = issueId;
+            size++;
+
+            if (size * 2 > values.length) {
+                resize();
+            }
+        } else if (issueIds[slot] != issueId) {
+            // サブプロジェクトの重複取得などで同じチケットが来た場合は除き、複数チケットで同じ値
+            issueIds[slot] = DUPLICATE;
+        }
+    }
+
+    private int indexOf(String value) {
+
+        int mask = values.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+
+        while (values[slot] != null && !values[slot].equals(value)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize() {
+
+        String[] oldValues = values;
+        int[] oldIssueIds = issueIds;
+
+        values = new String[oldValues.length * 2];
+        issueIds = new int[oldIssueIds.length * 2];
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = indexOf(oldValues[i]);
+                values[slot] = oldValues[i];
+                issueIds[slot] = oldIssueIds[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        // 偏ったハッシュ値でも衝突しにくいよう撹拌
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
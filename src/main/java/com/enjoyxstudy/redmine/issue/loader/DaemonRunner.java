@@ -0,0 +1,323 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.enjoyxstudy.redmine.issue.loader.client.HttpTransport;
+import com.enjoyxstudy.redmine.issue.loader.input.DaemonSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.JobSetting;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+
+@Slf4j
+public class DaemonRunner implements Closeable {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final DaemonSetting setting;
+
+    private final PrintStream out;
+
+    private final Path inbox;
+
+    private final Path done;
+
+    private final Path failed;
+
+    // 接続プールを全ファイルで共有し、ファイルが届くたびに接続し直さないようにする
+    private final OkHttpClient httpClient;
+
+    private final Semaphore budget;
+
+    private final ExecutorService jobExecutor;
+
+    private final WatchService watchService;
+
+    private final HttpServer httpServer;
+
+    // 処理待ち、処理中のファイル(同じファイルを二重に処理しないため)
+    private final Set<Path> acceptedFiles = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    public DaemonRunner(DaemonSetting setting, PrintStream out) throws IOException {
+
+        this.setting = setting;
+        this.out = out;
+
+        inbox = setting.resolve(setting.getInbox());
+        done = setting.resolve(setting.getDone());
+        failed = setting.resolve(setting.getFailed());
+        Files.createDirectories(inbox);
+        Files.createDirectories(done);
+        Files.createDirectories(failed);
+
+        httpClient = HttpTransport.newHttpClient(setting.getTransport(), setting.getParallelism());
+        budget = new Semaphore(setting.getParallelism(), true);
+        jobExecutor = Executors.newFixedThreadPool(Math.max(1, setting.getMaxConcurrentJobs()));
+
+        // 起動時に置かれていたファイルを処理する前に監視を始め、その間に届いたファイルも取りこぼさないようにする
+        watchService = FileSystems.getDefault().newWatchService();
+        inbox.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+
+        if (setting.getHttpPort() != null) {
+            httpServer = HttpServer.create(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), setting.getHttpPort()), 0);
+            httpServer.createContext("/jobs", this::handleJobRequest);
+            httpServer.setExecutor(Executors.newCachedThreadPool());
+            httpServer.start();
+        } else {
+            httpServer = null;
+        }
+    }
+
+    public int getHttpPort() {
+        return httpServer == null ? -1 : httpServer.getAddress().getPort();
+    }
+
+    // closeされるまで受信フォルダを監視し続ける
+    public void run() throws IOException {
+
+        out.println(String.format("Watching %s ...", inbox));
+        if (httpServer != null) {
+            out.println(String.format("Accepting jobs on http://%s:%d/jobs",
+                    httpServer.getAddress().getHostString(), getHttpPort()));
+        }
+
+        scanInbox();
+
+        while (!closed) {
+
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (ClosedWatchServiceException e) {
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // イベントが溢れた場合は取りこぼしがあるので、改めて一覧から探す
+                    scanInbox();
+                    continue;
+                }
+
+                Path fileName = (Path) event.context();
+                if (fileName.toString().endsWith(".csv")) {
+                    acceptInboxFile(inbox.resolve(fileName));
+                }
+            }
+
+            if (!key.reset()) {
+                throw new IOException(String.format("%s is no longer accessible.", inbox));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+        watchService.close();
+
+        if (httpServer != null) {
+            httpServer.stop(0);
+            ((ExecutorService) httpServer.getExecutor()).shutdown();
+        }
+
+        // 処理中のファイルは最後まで処理する
+        jobExecutor.shutdown();
+        try {
+            jobExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+    }
+
+    private void scanInbox() throws IOException {
+
+        List<Path> csvPaths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inbox, "*.csv")) {
+            stream.forEach(csvPaths::add);
+        }
+        csvPaths.sort(null);
+
+        csvPaths.forEach(this::acceptInboxFile);
+    }
+
+    private void acceptInboxFile(Path csvPath) {
+
+        if (closed || !acceptedFiles.add(csvPath)) {
+            return;
+        }
+
+        jobExecutor.submit(() -> {
+            try {
+                processInboxFile(csvPath);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to process {}.", csvPath, e);
+            } finally {
+                acceptedFiles.remove(csvPath);
+            }
+        });
+    }
+
+    private void processInboxFile(Path csvPath) throws IOException {
+
+        if (!Files.exists(csvPath)) {
+            // 起動時の一覧と監視のイベントの両方で受け付けた場合、既に処理済み
+            return;
+        }
+
+        // CSVファイルと同じ名前の設定ファイルを優先
+        String csvFileName = csvPath.getFileName().toString();
+        Path ownConfigPath = inbox.resolve(
+                csvFileName.substring(0, csvFileName.length() - ".csv".length()) + ".json");
+        Path configPath = Files.exists(ownConfigPath)
+                ? ownConfigPath
+                : setting.getConfig() != null ? setting.resolve(setting.getConfig()) : null;
+
+        // ジャーナルごと戻された場合は続きから再開
+        JobResult result = configPath == null
+                ? new JobResult(csvPath, 0, String.format("Config file for %s was not found.", csvFileName))
+                : MultiFileLoadRunner.executeJob(out, configPath, csvPath, true, httpClient, budget);
+
+        Path targetDirectory = result.isSucceeded() ? done : failed;
+        Path journalPath = LoadJournal.journalPath(csvPath);
+        if (Files.exists(journalPath)) {
+            move(journalPath, targetDirectory);
+        }
+        if (Files.exists(ownConfigPath)) {
+            move(ownConfigPath, targetDirectory);
+        }
+        move(csvPath, targetDirectory);
+
+        printResult(result);
+    }
+
+    private void handleJobRequest(HttpExchange exchange) throws IOException {
+
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            JobSetting job;
+            try (InputStream body = exchange.getRequestBody()) {
+                job = objectMapper.readValue(body, JobSetting.class);
+            } catch (IOException e) {
+                sendJson(exchange, 400, errorBody(e.toString()));
+                return;
+            }
+
+            if (job.getCsv() == null || (job.getConfig() == null && setting.getConfig() == null)) {
+                sendJson(exchange, 400, errorBody("csv and config are required."));
+                return;
+            }
+
+            Path configPath = setting.resolve(job.getConfig() != null ? job.getConfig() : setting.getConfig());
+            Path csvPath = setting.resolve(job.getCsv());
+
+            // 受信フォルダのファイルと同じ枠で処理し、完了まで待って結果を返す(ファイルの移動はしない)
+            Future<JobResult> future = jobExecutor.submit(
+                    () -> MultiFileLoadRunner.executeJob(out, configPath, csvPath, false, httpClient, budget));
+
+            JobResult result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                result = new JobResult(csvPath, 0, e.getCause().toString());
+            }
+
+            printResult(result);
+
+            Map<String, Object> responseBody = new LinkedHashMap<>();
+            responseBody.put("csv", result.getCsvPath().toString());
+            responseBody.put("loadedCount", result.getLoadedCount());
+            responseBody.put("error", result.getError());
+            sendJson(exchange, result.isSucceeded() ? 200 : 500, responseBody);
+
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void printResult(JobResult result) {
+
+        if (result.isSucceeded()) {
+            out.println(String.format(
+                    "%s: %d issues were loaded.", result.getCsvPath().getFileName(), result.getLoadedCount()));
+        } else {
+            out.println(String.format("%s: failed. %s", result.getCsvPath().getFileName(), result.getError()));
+        }
+    }
+
+    private static Map<String, Object> errorBody(String message) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        return body;
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private static void move(Path source, Path targetDirectory) throws IOException {
+        // 同じ名前のファイルが再度届くこともあるので上書き
+        Files.move(source, targetDirectory.resolve(source.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,232 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+import com.enjoyxstudy.redmine.issue.loader.client.QueryParameter;
+import com.enjoyxstudy.redmine.issue.loader.input.PrimaryKey;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class FingerprintStore implements Closeable {
+
+    private static final int MAGIC = 0x52494c46; // "RILF"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    // キーのハッシュ値(8バイト) / 内容のハッシュ値(8バイト)
+    private static final int SLOT_SIZE = 16;
+
+    private static final long EMPTY = 0;
+
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final FileChannel channel;
+
+    // ファイル全体をマップするので、件数が多くても開く際に読み込みは発生しない
+    private final MappedByteBuffer buffer;
+
+    private final int slotCount;
+
+    @Getter
+    private int size;
+
+    private boolean fullWarned;
+
+    private FingerprintStore(FileChannel channel, MappedByteBuffer buffer, int slotCount, int size) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+        this.size = size;
+    }
+
+    public static FingerprintStore open(Path path, int capacity) throws IOException {
+
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            if (exists) {
+                // 既存のファイルはその大きさのまま使用
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException(String.format("%s is not a fingerprint file.", path));
+                }
+
+                int slotCount = header.getInt(8);
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+
+                return new FingerprintStore(channel, buffer, slotCount, buffer.getInt(12));
+            }
+
+            // 使用率を半分以下に抑えるため、件数の2倍以上の2のべき乗をスロット数とする
+            int slotCount = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+            if (capacity <= 0 || slotCount <= 0 || slotCount > MAX_SLOTS) {
+                throw new IllegalArgumentException("Fingerprint capacity is out of range. " + capacity);
+            }
+
+            // 未使用のスロットは0のまま(ファイルシステムが対応していれば疎なファイルとなる)
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, slotCount);
+            buffer.putInt(12, 0);
+
+            return new FingerprintStore(channel, buffer, slotCount, 0);
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public synchronized boolean isUnchanged(long keyHash, long fieldsHash) {
+
+        int slot = indexOf(keyHash);
+        return slot >= 0
+                && buffer.getLong(offset(slot)) == keyHash
+                && buffer.getLong(offset(slot) + 8) == fieldsHash;
+    }
+
+    // 送信が終わるまで、記録済みの内容と一致しないようにする
+    public synchronized void invalidate(long keyHash) {
+
+        int slot = indexOf(keyHash);
+        if (slot >= 0 && buffer.getLong(offset(slot)) == keyHash) {
+            buffer.putLong(offset(slot) + 8, EMPTY);
+        }
+    }
+
+    public synchronized void put(long keyHash, long fieldsHash) {
+
+        int slot = indexOf(keyHash);
+        if (slot < 0) {
+            return;
+        }
+
+        int offset = offset(slot);
+
+        if (buffer.getLong(offset) == keyHash) {
+            buffer.putLong(offset + 8, fieldsHash);
+            return;
+        }
+
+        if ((size + 1) * 4L > slotCount * 3L) {
+            // 大きさは固定なので、一杯になった後の行は記録しない(毎回送信されるだけ)
+            if (!fullWarned) {
+                log.warn("The fingerprint file is full. Increase the capacity and recreate it.");
+                fullWarned = true;
+            }
+            return;
+        }
+
+        // 途中で終了してもキーだけ残らないよう、内容のハッシュ値を先に書き込む
+        buffer.putLong(offset + 8, fieldsHash);
+        buffer.putLong(offset, keyHash);
+
+        size++;
+        buffer.putInt(12, size);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (!channel.isOpen()) {
+            return;
+        }
+
+        buffer.force();
+        channel.close();
+    }
+
+    public static long keyHash(PrimaryKey key) {
+
+        QueryParameter queryParameter = key.getQueryParameter();
+
+        long hash = hash(FNV_OFFSET_BASIS, queryParameter.getName());
+        hash = hash(hash, queryParameter.getValue());
+
+        // 0は空きスロットを表すので使わない
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    public static long fieldsHash(Map<String, Object> fields) {
+
+        long hash = FNV_OFFSET_BASIS;
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            hash = hash(hash, field.getKey());
+            hash = hashValue(hash, field.getValue());
+        }
+
+        // 0は無効にした内容を表すので使わない
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private static long hashValue(long hash, Object value) {
+
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                hash = hashValue(hash, element);
+            }
+            return hash;
+        }
+
+        return hash(hash, String.valueOf(value));
+    }
+
+    private static long hash(long hash, String value) {
+
+        // FNV-1a(64bit)
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        // 区切り(隣り合う値の境界が変わっても同じハッシュ値とならないように)
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+
+        return hash;
+    }
+
+    private int indexOf(long keyHash) {
+
+        int mask = slotCount - 1;
+        int slot = (int) (keyHash ^ (keyHash >>> 32)) & mask;
+
+        for (int i = 0; i < slotCount; i++) {
+            long current = buffer.getLong(offset(slot));
+            if (current == EMPTY || current == keyHash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private static int offset(int slot) {
+        // 全体で2GB未満となるようスロット数を制限しているので、intで収まる
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
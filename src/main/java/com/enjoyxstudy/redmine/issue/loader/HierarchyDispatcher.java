@@ -0,0 +1,237 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import com.enjoyxstudy.redmine.issue.loader.input.IssueId;
+
+import lombok.RequiredArgsConstructor;
+
+// 親チケットの作成を待ってから子の行を処理する(依存関係の無い行は同時に処理)
+// 親の完了を待つ行があるため、結果は入力順ではなく完了した順に通知する
+public class HierarchyDispatcher implements Closeable {
+
+    @FunctionalInterface
+    public interface ChildTask {
+
+        // 親が同じCSV内の行の場合は、その行で作成したチケットのID(それ以外は0)
+        IssueId call(int parentIssueId) throws IOException;
+    }
+
+    private final ParentGraph graph;
+
+    private final ExecutorService executor;
+
+    private final Semaphore running;
+
+    private final Semaphore budget;
+
+    private final int window;
+
+    private final Consumer<IssueId> completion;
+
+    // 行番号→まだ子が揃っていない親の作成結果(子が全て受け取った後は除去)
+    private final Map<Integer, CompletableFuture<Integer>> parentIssueIds = new ConcurrentHashMap<>();
+
+    // 行番号→まだ投入されていない子の数(投入するスレッドのみが更新)
+    private final int[] remainingChildCounts;
+
+    private final BlockingQueue<Completed> completed = new LinkedBlockingQueue<>();
+
+    // 投入済みで結果を通知していない行数と、そのうち窓の数に含める行数
+    private int outstandingCount;
+
+    private int windowCount;
+
+    private long lastRowNumber;
+
+    // 失敗などで終了する場合、まだ送信を始めていない行は処理しない
+    private volatile boolean closed;
+
+    public HierarchyDispatcher(ParentGraph graph, int parallelism, boolean virtualThreads, Semaphore budget,
+            Consumer<IssueId> completion) {
+
+        this.graph = graph;
+        this.executor = IssueDispatcher.newExecutor(Math.max(1, parallelism), virtualThreads);
+        this.running = new Semaphore(Math.max(1, parallelism));
+        this.budget = budget;
+        this.window = Math.max(1, parallelism) * 4;
+        this.completion = completion;
+
+        this.remainingChildCounts = new int[graph.getRowCount() + 1];
+        for (int row = 1; row <= graph.getRowCount(); row++) {
+            remainingChildCounts[row] = graph.getChildCount(row);
+        }
+    }
+
+    public void submit(long rowNumber, ChildTask task) throws IOException {
+
+        int row = Math.toIntExact(rowNumber);
+        int parentRow = graph.getParentRow(row);
+
+        // 祖先に後ろの行がある場合、その行を投入するまで終わらないので、窓の数には含めない(含めると詰まる)
+        boolean counted = !graph.isWaitingForLaterRow(row);
+
+        while (counted && windowCount >= window) {
+            reportNext();
+        }
+
+        CompletableFuture<Integer> parentIssueId = parentRow == ParentGraph.NONE
+                ? CompletableFuture.completedFuture(0)
+                : takeParentIssueId(parentRow);
+
+        CompletableFuture<IssueId> future = parentIssueId.thenApplyAsync(x -> call(task, x), executor);
+
+        if (graph.getChildCount(row) > 0) {
+            // 子が待っている場合は作成したIDを渡す(失敗した場合は子も失敗させる)
+            CompletableFuture<Integer> issueIdForChildren = parentIssueId(row);
+            future.whenComplete((issueId, e) -> {
+                if (e == null) {
+                    issueIdForChildren.complete(issueId.getId());
+                } else {
+                    issueIdForChildren.completeExceptionally(e);
+                }
+            });
+        }
+
+        future.whenComplete((x, e) -> completed.add(new Completed(future, counted)));
+
+        outstandingCount++;
+        if (counted) {
+            windowCount++;
+        }
+        lastRowNumber = Math.max(lastRowNumber, row);
+
+        while (!completed.isEmpty()) {
+            reportNext();
+        }
+    }
+
+    // 前回までに作成済みの行(子にはそのIDを渡す)
+    public void skip(long rowNumber, int issueId) {
+
+        int row = Math.toIntExact(rowNumber);
+        lastRowNumber = Math.max(lastRowNumber, row);
+
+        if (graph.getChildCount(row) == 0) {
+            return;
+        }
+
+        if (issueId <= 0) {
+            parentIssueId(row).completeExceptionally(new IllegalStateException(
+                    String.format("Issue ID of row %d was not found in the journal.", row)));
+        } else {
+            parentIssueId(row).complete(issueId);
+        }
+    }
+
+    public void finish() throws IOException {
+
+        // 途中で終了した場合、まだ投入していない行を親として待っている子は処理できない
+        for (Map.Entry<Integer, CompletableFuture<Integer>> entry : parentIssueIds.entrySet()) {
+            if (entry.getKey() > lastRowNumber) {
+                entry.getValue().completeExceptionally(new IllegalStateException(
+                        String.format("Parent row %d was not loaded.", entry.getKey())));
+            }
+        }
+
+        while (outstandingCount > 0) {
+            reportNext();
+        }
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+        IssueDispatcher.awaitRunningRows(executor);
+    }
+
+    private CompletableFuture<Integer> parentIssueId(int row) {
+        return parentIssueIds.computeIfAbsent(row, x -> new CompletableFuture<>());
+    }
+
+    private CompletableFuture<Integer> takeParentIssueId(int parentRow) {
+
+        CompletableFuture<Integer> parentIssueId = parentIssueId(parentRow);
+
+        if (--remainingChildCounts[parentRow] == 0) {
+            // 全ての子が受け取ったので、親の完了後は不要
+            parentIssueId.whenComplete((x, e) -> parentIssueIds.remove(parentRow));
+        }
+
+        return parentIssueId;
+    }
+
+    private void reportNext() throws IOException {
+
+        Completed next;
+        try {
+            next = completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        outstandingCount--;
+        if (next.counted) {
+            windowCount--;
+        }
+
+        IssueId issueId;
+        try {
+            issueId = next.future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+
+        completion.accept(issueId);
+    }
+
+    private IssueId call(ChildTask task, int parentIssueId) {
+
+        running.acquireUninterruptibly();
+        if (budget != null) {
+            budget.acquireUninterruptibly();
+        }
+        try {
+            if (closed) {
+                // 送信していないのでジャーナルにも記録されず、再開時に処理される
+                throw new IllegalStateException("Row was not loaded because the processing was stopped.");
+            }
+            return task.call(parentIssueId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (budget != null) {
+                budget.release();
+            }
+            running.release();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Completed {
+
+        private final CompletableFuture<IssueId> future;
+
+        private final boolean counted;
+    }
+}
@@ -0,0 +1,156 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.enjoyxstudy.redmine.issue.loader.client.Issue;
+import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
+import com.enjoyxstudy.redmine.issue.loader.input.Hours;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueFields;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class IssueDelta {
+
+    private static final String CUSTOM_FIELDS = "custom_fields";
+
+    private static final BigDecimal HOURS_TOLERANCE = new BigDecimal("0.001");
+
+    // 更新時のフィールド名と、取得時の項目名の対応(取得時はIDではなくオブジェクトとして返却される)
+    private static final Map<String, String> REFERENCE_NAMES;
+    static {
+        Map<String, String> referenceNames = new HashMap<>();
+        referenceNames.put(FieldType.PROJECT_ID.getFieldName(), "project");
+        referenceNames.put(FieldType.TRACKER_ID.getFieldName(), "tracker");
+        referenceNames.put(FieldType.STATUS_ID.getFieldName(), "status");
+        referenceNames.put(FieldType.PRIORITY_ID.getFieldName(), "priority");
+        referenceNames.put(FieldType.ASSIGNED_TO_ID.getFieldName(), "assigned_to");
+        referenceNames.put(FieldType.CATEGORY_ID.getFieldName(), "category");
+        referenceNames.put(FieldType.FIXED_VERSION_ID.getFieldName(), "fixed_version");
+        referenceNames.put(FieldType.PARENT_ISSUE_ID.getFieldName(), "parent");
+        REFERENCE_NAMES = Collections.unmodifiableMap(referenceNames);
+    }
+
+    public static Map<String, Object> changedFields(Issue current, Map<String, Object> targetFields) {
+
+        // 変更分も同じ形式とし、送信時は専用のシリアライザで出力されるように
+        Map<String, Object> changedFields = targetFields instanceof IssueFields
+                ? new IssueFields()
+                : new LinkedHashMap<>();
+
+        for (Map.Entry<String, Object> targetField : targetFields.entrySet()) {
+
+            if (targetField.getKey().equals(CUSTOM_FIELDS)) {
+
+                @SuppressWarnings("unchecked")
+                List<CustomField> changedCustomFields = changedCustomFields(
+                        current, (List<CustomField>) targetField.getValue());
+
+                if (!changedCustomFields.isEmpty()) {
+                    changedFields.put(CUSTOM_FIELDS, changedCustomFields);
+                }
+
+            } else if (!isSame(currentValue(current, targetField.getKey()), (String) targetField.getValue())) {
+                changedFields.put(targetField.getKey(), targetField.getValue());
+            }
+        }
+
+        return changedFields;
+    }
+
+    private static List<CustomField> changedCustomFields(Issue current, List<CustomField> targetCustomFields) {
+
+        Map<Integer, String> currentValues = new HashMap<>();
+        if (current.getCustomFields() != null) {
+            for (CustomField customField : current.getCustomFields()) {
+                currentValues.put(customField.getId(), customField.getValue());
+            }
+        }
+
+        List<CustomField> changedCustomFields = new ArrayList<>();
+        for (CustomField targetCustomField : targetCustomFields) {
+            if (!currentValues.containsKey(targetCustomField.getId())
+                    || !isSame(currentValues.get(targetCustomField.getId()), targetCustomField.getValue())) {
+                changedCustomFields.add(targetCustomField);
+            }
+        }
+
+        return changedCustomFields;
+    }
+
+    private static Object currentValue(Issue current, String fieldName) {
+
+        String referenceName = REFERENCE_NAMES.get(fieldName);
+        if (referenceName != null) {
+            Object reference = current.getAttributes().get(referenceName);
+            return reference instanceof Map ? ((Map<?, ?>) reference).get("id") : null;
+        }
+
+        return current.getAttributes().get(fieldName);
+    }
+
+    private static boolean isSame(Object currentValue, String targetValue) {
+
+        String current = toText(currentValue);
+
+        if (current.equals(targetValue)) {
+            return true;
+        }
+
+        if (current.isEmpty() || targetValue.isEmpty()) {
+            return false;
+        }
+
+        if (currentValue instanceof Number) {
+            return isSameNumber(current, targetValue);
+        }
+
+        // Redmine側では改行コードがCRLFとなるため揃えて比較
+        return current.replace("\r\n", "\n").equals(targetValue.replace("\r\n", "\n"));
+    }
+
+    private static boolean isSameNumber(String current, String targetValue) {
+
+        BigDecimal currentNumber;
+        try {
+            currentNumber = new BigDecimal(current);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        try {
+            // "2.5"と2.5、"10"と10.0のような表記の違いは同じ値として扱う
+            return currentNumber.compareTo(new BigDecimal(targetValue)) == 0;
+        } catch (NumberFormatException e) {
+            // 予定工数の"1:30"や"1h30"などは、Redmineと同じく時間に換算して比較
+            // (分は割り切れないので、Redmineに保存された値との誤差は許容)
+            BigDecimal hours = Hours.toDecimal(targetValue);
+            return hours != null && currentNumber.subtract(hours).abs().compareTo(HOURS_TOLERANCE) < 0;
+        }
+    }
+
+    private static String toText(Object value) {
+
+        if (value == null) {
+            return "";
+        }
+
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream()
+                    .map(IssueDelta::toText)
+                    .collect(Collectors.joining(","));
+        }
+
+        return value.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.enjoyxstudy.redmine.issue.loader.input.IssueId;
+import com.enjoyxstudy.redmine.issue.loader.input.PrimaryKey;
+
+public class IssueDispatcher implements Closeable {
+
+    @FunctionalInterface
+    public interface RowTask {
+
+        IssueId call() throws IOException;
+    }
+
+    private final ExecutorService executor;
+
+    private final Semaphore running;
+
+    // 複数ファイルを同時に処理する場合に、全体で共有する同時実行数の枠(無い場合はnull)
+    private final Semaphore budget;
+
+    private final int window;
+
+    private final Consumer<IssueId> completion;
+
+    // 同一キーの行を順番に処理するため、キーごとに最後に投入した処理を保持
+    private final Map<PrimaryKey, CompletableFuture<IssueId>> lastByKey = new ConcurrentHashMap<>();
+
+    // 入力順に結果を通知するため、投入順に保持
+    private final Deque<CompletableFuture<IssueId>> pending = new ArrayDeque<>();
+
+    // 失敗などで終了する場合、まだ送信を始めていない行は処理しない
+    private volatile boolean closed;
+
+    public IssueDispatcher(int parallelism, boolean virtualThreads, Consumer<IssueId> completion) {
+        this(parallelism, virtualThreads, null, completion);
+    }
+
+    public IssueDispatcher(int parallelism, boolean virtualThreads, Semaphore budget, Consumer<IssueId> completion) {
+
+        this.budget = budget;
+        this.executor = parallelism <= 1 ? null : newExecutor(parallelism, virtualThreads);
+        // 仮想スレッドの場合はスレッド数で上限がかからないため、同時実行数をセマフォで制限
+        this.running = new Semaphore(Math.max(1, parallelism));
+        // 先頭の行が遅い場合でも後続を投入し続けられるよう、並列数より大きめの窓を持つ
+        this.window = Math.max(1, parallelism) * 4;
+        this.completion = completion;
+    }
+
+    public void submit(PrimaryKey key, RowTask task) throws IOException {
+
+        while (pending.size() >= window) {
+            reportHead();
+        }
+
+        if (executor == null) {
+            // 並列数1の場合は呼び出しスレッドでそのまま処理
+            completion.accept(callWithBudget(task));
+            return;
+        }
+
+        CompletableFuture<IssueId> future;
+        CompletableFuture<IssueId> previous = key == null ? null : lastByKey.get(key);
+        if (previous == null) {
+            future = CompletableFuture.supplyAsync(() -> call(task), executor);
+        } else {
+            // 同一キーの前の行が終わってから処理
+            future = previous.thenApplyAsync(x -> call(task), executor);
+        }
+
+        if (key != null) {
+            lastByKey.put(key, future);
+            // 完了後は不要となるので除去(後続が登録済みの場合はそのまま)
+            future.whenComplete((x, e) -> lastByKey.remove(key, future));
+        }
+        pending.addLast(future);
+
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            reportHead();
+        }
+    }
+
+    public void finish() throws IOException {
+
+        while (!pending.isEmpty()) {
+            reportHead();
+        }
+    }
+
+    @Override
+    public void close() {
+
+        if (executor == null) {
+            return;
+        }
+
+        closed = true;
+        awaitRunningRows(executor);
+    }
+
+    private void reportHead() throws IOException {
+
+        CompletableFuture<IssueId> head = pending.removeFirst();
+
+        IssueId issueId;
+        try {
+            issueId = head.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+
+        completion.accept(issueId);
+    }
+
+    private IssueId call(RowTask task) {
+
+        running.acquireUninterruptibly();
+        try {
+            return callWithBudget(task);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            running.release();
+        }
+    }
+
+    private IssueId callWithBudget(RowTask task) throws IOException {
+
+        if (budget == null) {
+            return callIfOpen(task);
+        }
+
+        budget.acquireUninterruptibly();
+        try {
+            return callIfOpen(task);
+        } finally {
+            budget.release();
+        }
+    }
+
+    private IssueId callIfOpen(RowTask task) throws IOException {
+
+        if (closed) {
+            // 送信していないのでジャーナルにも記録されず、再開時に処理される
+            throw new IllegalStateException("Row was not loaded because the processing was stopped.");
+        }
+
+        return task.call();
+    }
+
+    static void awaitRunningRows(ExecutorService executor) {
+
+        // 送信中の行は中断せずに完了を待つ
+        // (中断するとRedmineには登録済みでもジャーナルに記録されず、再開時に二重に登録される)
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static ExecutorService newExecutor(int parallelism, boolean virtualThreads) {
+
+        if (virtualThreads) {
+            try {
+                // 仮想スレッドはJava 21以降のみ利用可能なため、リフレクションで生成
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // 利用できない環境では通常のスレッドプールで代替
+            }
+        }
+
+        return Executors.newFixedThreadPool(parallelism);
+    }
+}
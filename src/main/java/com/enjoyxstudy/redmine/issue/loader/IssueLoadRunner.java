@@ -4,44 +4,175 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import com.enjoyxstudy.redmine.issue.loader.client.Client;
+import com.enjoyxstudy.redmine.issue.loader.client.ConcurrencyLimiter;
+import com.enjoyxstudy.redmine.issue.loader.client.HttpTransport;
+import com.enjoyxstudy.redmine.issue.loader.client.RetryPolicy;
 import com.enjoyxstudy.redmine.issue.loader.input.Config;
+import com.enjoyxstudy.redmine.issue.loader.input.DaemonSetting;
 import com.enjoyxstudy.redmine.issue.loader.input.FieldSetting;
 import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
 import com.enjoyxstudy.redmine.issue.loader.input.IssueId;
 import com.enjoyxstudy.redmine.issue.loader.input.IssueRecord;
 import com.enjoyxstudy.redmine.issue.loader.input.IssueRecords;
+import com.enjoyxstudy.redmine.issue.loader.input.JobManifest;
 import com.enjoyxstudy.redmine.issue.loader.input.LoadMode;
-
+import com.enjoyxstudy.redmine.issue.loader.input.MetricsSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.PrimaryKey;
+import com.enjoyxstudy.redmine.issue.loader.input.ResolvedNames;
+import com.enjoyxstudy.redmine.issue.loader.input.ValidationError;
+import com.enjoyxstudy.redmine.issue.loader.input.ValidationResult;
+import com.enjoyxstudy.redmine.issue.loader.metrics.LoadMetrics;
+import com.enjoyxstudy.redmine.issue.loader.metrics.LoadMetrics.Phase;
+
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
 
-@AllArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
 @NoArgsConstructor
+@Slf4j
 public class IssueLoadRunner {
 
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
     private PrintStream out;
 
+    // 複数ファイルを処理する場合に共有するHTTPクライアントと同時実行数の枠(単独の場合はnull)
+    private OkHttpClient sharedHttpClient;
+
+    private Semaphore sharedBudget;
+
+    private String linePrefix = "";
+
+    public IssueLoadRunner(PrintStream out) {
+        this.out = out;
+    }
+
     public static void main(String[] args) throws IOException {
 
-        if (args.length != 2) {
-            System.err.println("usage: java -jar redmine-issue-loader-all.jar <config file> <csv file>");
+        boolean resume = false;
+        boolean validateOnly = false;
+        boolean jobs = false;
+        boolean daemon = false;
+        List<String> arguments = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--resume")) {
+                resume = true;
+            } else if (arg.equals("--validate")) {
+                validateOnly = true;
+            } else if (arg.equals("--jobs")) {
+                jobs = true;
+            } else if (arg.equals("--daemon")) {
+                daemon = true;
+            } else {
+                arguments.add(arg);
+            }
+        }
+
+        if (jobs && arguments.size() == 1) {
+            // 複数ファイルを1つのJVMでまとめて処理
+            executeJobs(Paths.get(arguments.get(0)));
+            return;
+        }
+
+        if (daemon && arguments.size() == 1) {
+            // 常駐して受信フォルダに届いたファイルを順次処理
+            executeDaemon(Paths.get(arguments.get(0)));
+            return;
+        }
+
+        if (jobs || daemon || arguments.size() != 2) {
+            System.err.println(
+                    "usage: java -jar redmine-issue-loader-all.jar [--resume|--validate] <config file> <csv file>");
+            System.err.println(
+                    "       java -jar redmine-issue-loader-all.jar --jobs <manifest file|directory>");
+            System.err.println(
+                    "       java -jar redmine-issue-loader-all.jar --daemon <daemon setting file>");
             System.exit(1);
         }
 
-        Path configPath = Paths.get(args[0]);
-        Path csvPath = Paths.get(args[1]);
+        Path configPath = Paths.get(arguments.get(0));
+        Path csvPath = Paths.get(arguments.get(1));
+
+        IssueLoadRunner issueLoadRunner = new IssueLoadRunner(System.out);
+
+        if (validateOnly) {
+            // 通信せずにCSVの内容のみ確認
+            ValidationResult result = issueLoadRunner.validateCsv(Config.of(configPath), csvPath);
+            if (!result.isValid()) {
+                System.exit(1);
+            }
+            return;
+        }
 
         System.out.println("Processing start...");
 
-        IssueLoadRunner issueLoadRunner = new IssueLoadRunner(System.out);
-        int loadedCount = issueLoadRunner.execute(configPath, csvPath);
+        int loadedCount = issueLoadRunner.execute(Config.of(configPath), csvPath, resume);
 
         System.out.println(
                 String.format("Processing is completed. %d issues were loaded.", loadedCount));
     }
 
+    private static void executeJobs(Path manifestPath) throws IOException {
+
+        System.out.println("Processing start...");
+
+        List<JobResult> results = new MultiFileLoadRunner(System.out).execute(JobManifest.of(manifestPath));
+
+        int loadedCount = 0;
+        boolean failed = false;
+        for (JobResult result : results) {
+            loadedCount += result.getLoadedCount();
+            if (result.isSucceeded()) {
+                System.out.println(String.format(
+                        "%s: %d issues were loaded.", result.getCsvPath(), result.getLoadedCount()));
+            } else {
+                failed = true;
+                System.out.println(String.format("%s: failed. %s", result.getCsvPath(), result.getError()));
+            }
+        }
+
+        System.out.println(String.format(
+                "Processing is completed. %d issues were loaded from %d files.", loadedCount, results.size()));
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static void executeDaemon(Path settingPath) throws IOException {
+
+        DaemonRunner daemonRunner = new DaemonRunner(DaemonSetting.of(settingPath), System.out);
+
+        // 停止時は処理中のファイルを終えてから終了
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemonRunner.close();
+            } catch (IOException e) {
+                log.error("Failed to stop.", e);
+            }
+        }));
+
+        daemonRunner.run();
+    }
+
     public int execute(Path configPath, Path csvPath) throws IOException {
 
         Config config = Config.of(configPath);
@@ -50,35 +181,450 @@ public class IssueLoadRunner {
     }
 
     public int execute(Config config, Path csvPath) throws IOException {
+        return execute(config, csvPath, false);
+    }
+
+    public int execute(Config config, Path csvPath, boolean resume) throws IOException {
 
         validate(config);
 
-        Client client = Client.builder()
-                .redmineBaseUrl(config.getReadmineUrl())
-                .apiKey(config.getApiKey())
-                .basicAuth(config.getBasicAuth())
-                .build();
+        // 行ごとの出力で処理が止まらないよう、出力は別スレッドで行う
+        try (AsyncLineWriter writer = new AsyncLineWriter(out, linePrefix)) {
 
-        IssueLoader loader = new IssueLoader(client);
+            // 名称の取得と登録で同じ接続を使う
+            OkHttpClient httpClient = httpClient(config);
 
-        int issueCount = 0;
-        try (IssueRecords issueRecords = IssueRecords.parse(csvPath, config)) {
+            ResolvedNames resolvedNames = resolveNames(config, httpClient, writer);
+
+            if (config.isValidateFirst()) {
+                // 途中の行で失敗して中途半端に登録されないよう、先に全行を確認
+                ValidationResult result = validateCsv(config, csvPath, resolvedNames, writer);
+                if (!result.isValid()) {
+                    throw new IllegalArgumentException(
+                            String.format("%d errors were found in the CSV file.", result.getErrors().size()));
+                }
+            }
+
+            return load(config, csvPath, resume, resolvedNames, httpClient, writer);
+        }
+    }
+
+    public ValidationResult validateCsv(Config config, Path csvPath) throws IOException {
+
+        validate(config);
+
+        try (AsyncLineWriter writer = new AsyncLineWriter(out, linePrefix)) {
+            return validateCsv(config, csvPath, resolveNames(config, httpClient(config), writer), writer);
+        }
+    }
+
+    private ValidationResult validateCsv(Config config, Path csvPath,
+            ResolvedNames resolvedNames, AsyncLineWriter writer) throws IOException {
+
+        ValidationResult result;
+        try (IssueRecords issueRecords = IssueRecords.parse(csvPath, config, null, resolvedNames)) {
+            result = issueRecords.validate(config.getMode());
+        }
+
+        if (config.getParentReference() != null) {
+            // 行ごとの確認では分からない、行をまたいだ参照の誤りも含める
+            ParentGraph parentGraph = null;
+            try {
+                parentGraph = parseParentGraph(config, csvPath, resolvedNames);
+            } catch (IOException e) {
+                // CSVの形式の誤りは行ごとの確認でエラーとしているので、途中までの行で参照を確認しない
+            }
+
+            if (parentGraph != null) {
+                List<ValidationError> errors = new ArrayList<>(result.getErrors());
+                errors.addAll(parentGraph.getErrors());
+                result = new ValidationResult(result.getRowCount(), errors, result.getWarnings());
+            }
+        }
+
+        for (ValidationError warning : result.getWarnings()) {
+            writer.println("Warning: " + warning);
+        }
+        for (ValidationError error : result.getErrors()) {
+            writer.println(error.toString());
+        }
+
+        writer.println(String.format(
+                "Validation %s. %d rows, %d errors, %d warnings.",
+                result.isValid() ? "succeeded" : "failed",
+                result.getRowCount(),
+                result.getErrors().size(),
+                result.getWarnings().size()));
+
+        return result;
+    }
+
+    private int load(Config config, Path csvPath, boolean resume, ResolvedNames resolvedNames,
+            OkHttpClient httpClient, AsyncLineWriter writer) throws IOException {
+
+        int parallelism = parallelism(config);
+
+        // 進捗表示のエラー数も計測結果から取得
+        LoadMetrics metrics = config.getMetrics() != null || config.getProgressIntervalSeconds() > 0
+                ? new LoadMetrics(config.getMetrics() != null ? config.getMetrics().getSlowRequestCount() : 0)
+                : null;
+
+        Client client = newClient(config, httpClient, metrics);
+
+        if (config.getTransport() != null) {
+            client.prewarm(config.getTransport().getPrewarmConnections());
+        }
+
+        IssueLoader loader = new IssueLoader(
+                client, prefetch(config, client, writer), config.isDeltaUpdate(), metrics);
+
+        String resultFormat = config.getMode() == LoadMode.CREATE ? "#%d is created." : "#%d is updated.";
+        String journalStatus = config.getMode() == LoadMode.CREATE ? "created" : "updated";
+        AtomicInteger issueCount = new AtomicInteger();
+        int skippedCount = 0;
+        int unchangedCount = 0;
+
+        // 終了シグナルを受けた場合、処理中の行を待ってから終了する
+        AtomicBoolean stopRequested = new AtomicBoolean();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            stopRequested.set(true);
+            try {
+                stopped.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        // 親チケットとして同じCSV内の行を参照する場合、登録を始める前に全行の参照先を確認
+        ParentGraph parentGraph = config.getParentReference() != null
+                ? buildParentGraph(config, csvPath, resolvedNames, writer)
+                : null;
+
+        ScheduledExecutorService metricsExporter = startMetricsExporter(config.getMetrics(), metrics);
+
+        try (LoadJournal journal = config.isJournal() || resume ? LoadJournal.open(csvPath, resume) : null;
+                FingerprintStore fingerprints = config.getFingerprint() != null
+                        ? FingerprintStore.open(
+                                Paths.get(config.getFingerprint().getFile()), config.getFingerprint().getCapacity())
+                        : null;
+                IssueRecords issueRecords = IssueRecords.parse(csvPath, config, metrics, resolvedNames);
+                ProgressReporter progress = new ProgressReporter(
+                        writer,
+                        issueRecords,
+                        metrics != null ? () -> metrics.getCount("errors") : () -> 0,
+                        config.getProgressIntervalSeconds());
+                IssueDispatcher dispatcher = parentGraph == null
+                        ? new IssueDispatcher(parallelism, config.isVirtualThreads(), sharedBudget,
+                                onLoaded(config, resultFormat, issueCount, progress, metrics, writer))
+                        : null;
+                // 親の行の作成を待つ行がある場合、結果は完了した順となる
+                HierarchyDispatcher hierarchyDispatcher = parentGraph != null
+                        ? new HierarchyDispatcher(parentGraph, parallelism, config.isVirtualThreads(), sharedBudget,
+                                onLoaded(config, resultFormat, issueCount, progress, metrics, writer))
+                        : null) {
 
             for (IssueRecord issueRecord : issueRecords) {
 
-                if (config.getMode() == LoadMode.CREATE) {
-                    IssueId issueId = loader.create(issueRecord.getFields());
-                    println(String.format("#%d is created.", issueId.getId()));
+                if (stopRequested.get()) {
+                    writer.println("Processing was stopped. The rest can be loaded with --resume.");
+                    break;
+                }
+
+                if (journal != null && journal.isCommitted(issueRecord.getRowNumber())) {
+                    // 前回までに処理済み
+                    if (hierarchyDispatcher != null) {
+                        // 子の行には前回作成したチケットを親として渡す
+                        hierarchyDispatcher.skip(
+                                issueRecord.getRowNumber(), journal.getIssueId(issueRecord.getRowNumber()));
+                    }
+                    skippedCount++;
+                    progress.onSkipped();
+                    increment(metrics, "skipped");
+                    continue;
+                }
+
+                PrimaryKey key = issueRecord.getPrimaryKey();
+
+                long keyHash = 0;
+                long fieldsHash = 0;
+                if (fingerprints != null) {
+                    keyHash = FingerprintStore.keyHash(key);
+                    fieldsHash = FingerprintStore.fieldsHash(issueRecord.getFields());
+
+                    if (fingerprints.isUnchanged(keyHash, fieldsHash)) {
+                        // 前回の実行から内容が変わっていないので、Redmineにはアクセスしない
+                        unchangedCount++;
+                        progress.onSkipped();
+                        increment(metrics, "unchanged");
+                        continue;
+                    }
+
+                    // 同じキーの後ろの行が、この行の送信前に前回の内容と比較されて読み飛ばされないように
+                    // (同じキーの行は順番に送信され、最後の行の内容が記録される)
+                    fingerprints.invalidate(keyHash);
+                }
+
+                progress.onSubmitted();
+                increment(metrics, "rows");
+
+                long submittedKeyHash = keyHash;
+                long submittedFieldsHash = fieldsHash;
+                IssueDispatcher.RowTask rowTask = () -> {
+
+                    long rowStartNanos = System.nanoTime();
+
+                    IssueId issueId = config.getMode() == LoadMode.CREATE
+                            ? loader.create(issueRecord.getFields())
+                            : loader.update(key, issueRecord.getFields());
+
+                    if (journal != null) {
+                        journal.commit(issueRecord.getRowNumber(), key, issueId, journalStatus);
+                    }
+                    if (fingerprints != null) {
+                        // 更新できた内容のみ記録(失敗した行は次回も送信される)
+                        fingerprints.put(submittedKeyHash, submittedFieldsHash);
+                    }
+                    if (metrics != null) {
+                        metrics.record(Phase.ROW, System.nanoTime() - rowStartNanos);
+                    }
+                    return issueId;
+                };
+
+                if (hierarchyDispatcher != null) {
+                    hierarchyDispatcher.submit(issueRecord.getRowNumber(), parentIssueId -> {
+                        if (parentIssueId != 0) {
+                            // 同じCSV内の親の行で作成したチケットを親とする
+                            issueRecord.getFields().put(
+                                    FieldType.PARENT_ISSUE_ID.getFieldName(), String.valueOf(parentIssueId));
+                        }
+                        return rowTask.call();
+                    });
                 } else {
-                    IssueId issueId = loader.update(issueRecord.getPrimaryKey(), issueRecord.getFields());
-                    println(String.format("#%d is updated.", issueId.getId()));
+                    dispatcher.submit(key, rowTask);
                 }
+            }
+
+            if (hierarchyDispatcher != null) {
+                hierarchyDispatcher.finish();
+            } else {
+                dispatcher.finish();
+            }
+
+        } finally {
+            if (metricsExporter != null) {
+                metricsExporter.shutdownNow();
+            }
+            stopped.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // 終了処理中は解除できない
+            }
+        }
+
+        if (skippedCount > 0) {
+            writer.println(String.format("%d rows were skipped because they were already loaded.", skippedCount));
+        }
+
+        if (config.getFingerprint() != null) {
+            writer.println(String.format(
+                    "%d rows were unchanged since the last run and skipped.", unchangedCount));
+        }
+
+        if (config.isDeltaUpdate()) {
+            writer.println(String.format(
+                    "%d issues were unchanged and skipped, %d issues were updated only changed fields.",
+                    loader.getUnchangedCount().sum(),
+                    loader.getChangedCount().sum()));
+        }
+
+        if (config.getMetrics() != null) {
+            writeMetrics(config.getMetrics(), metrics, writer);
+        }
 
-                issueCount++;
+        return issueCount.get();
+    }
+
+    private static Consumer<IssueId> onLoaded(Config config, String resultFormat, AtomicInteger issueCount,
+            ProgressReporter progress, LoadMetrics metrics, AsyncLineWriter writer) {
+
+        return issueId -> {
+            if (config.isRowOutput()) {
+                // 差分更新で変更が無かったものは、更新したものと区別して出力
+                writer.println(String.format(
+                        issueId.isUnchanged() ? "#%d is unchanged." : resultFormat, issueId.getId()));
             }
+            issueCount.incrementAndGet();
+            progress.onCompleted();
+            increment(metrics, "loaded");
+        };
+    }
+
+    private ParentGraph buildParentGraph(Config config, Path csvPath,
+            ResolvedNames resolvedNames, AsyncLineWriter writer) throws IOException {
+
+        ParentGraph parentGraph = parseParentGraph(config, csvPath, resolvedNames);
+
+        if (!parentGraph.getErrors().isEmpty()) {
+            // 途中まで登録されて階層が中途半端にならないよう、1件も登録せずに終了
+            for (ValidationError error : parentGraph.getErrors()) {
+                writer.println(error.toString());
+            }
+            throw new IllegalArgumentException(
+                    String.format("%d errors were found in the parent references.", parentGraph.getErrors().size()));
+        }
+
+        writer.println(String.format("%d rows reference a parent row in the CSV file.", parentGraph.getChildRowCount()));
+
+        return parentGraph;
+    }
+
+    private static ParentGraph parseParentGraph(Config config, Path csvPath,
+            ResolvedNames resolvedNames) throws IOException {
+
+        try (IssueRecords issueRecords = IssueRecords.parse(csvPath, config, null, resolvedNames)) {
+            return ParentGraph.build(
+                    issueRecords, config.getParentReference().getKeyHeaderName(), parentHeaderName(config));
         }
+    }
+
+    private static String parentHeaderName(Config config) {
+        return config.getFields().stream()
+                .filter(x -> x.getType() == FieldType.PARENT_ISSUE_ID)
+                .map(FieldSetting::getHeaderName)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static int parallelism(Config config) {
+
+        // 同時実行数を自動調整する場合、その上限まで行を投入できるようにする
+        return config.getAdaptiveConcurrency() != null
+                ? Math.max(config.getParallelism(), config.getAdaptiveConcurrency().getMaxLimit())
+                : config.getParallelism();
+    }
+
+    private OkHttpClient httpClient(Config config) {
+        return sharedHttpClient != null
+                ? sharedHttpClient
+                : HttpTransport.newHttpClient(config.getTransport(), parallelism(config));
+    }
 
-        return issueCount;
+    private Client newClient(Config config, OkHttpClient httpClient, LoadMetrics metrics) {
+
+        return Client.builder()
+                .redmineBaseUrl(config.getReadmineUrl())
+                .apiKey(config.getApiKey())
+                .basicAuth(config.getBasicAuth())
+                .httpClient(httpClient)
+                .limiter(config.getAdaptiveConcurrency() != null
+                        ? new ConcurrencyLimiter(config.getAdaptiveConcurrency())
+                        : null)
+                .retryPolicy(config.getRetry() != null ? new RetryPolicy(config.getRetry()) : null)
+                .idempotencyCustomFieldId(config.getRetry() != null
+                        ? config.getRetry().getIdempotencyCustomFieldId()
+                        : null)
+                .metrics(metrics)
+                .build();
+    }
+
+    private ScheduledExecutorService startMetricsExporter(MetricsSetting metricsSetting, LoadMetrics metrics) {
+
+        if (metricsSetting == null || metricsSetting.getPrometheusFile() == null
+                || metricsSetting.getPrometheusIntervalSeconds() <= 0) {
+            // 間隔が0以下の場合は、処理終了時のみ出力
+            return null;
+        }
+
+        // 処理中も定期的に最新の内容で置き換える
+        Path prometheusPath = Paths.get(metricsSetting.getPrometheusFile());
+        ScheduledExecutorService exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        exporter.scheduleWithFixedDelay(() -> {
+            try {
+                metrics.writePrometheus(prometheusPath);
+            } catch (IOException e) {
+                log.warn("Failed to write metrics. ({})", e.getMessage());
+            }
+        }, metricsSetting.getPrometheusIntervalSeconds(), metricsSetting.getPrometheusIntervalSeconds(),
+                TimeUnit.SECONDS);
+
+        return exporter;
+    }
+
+    private void writeMetrics(MetricsSetting metricsSetting, LoadMetrics metrics, AsyncLineWriter writer)
+            throws IOException {
+
+        if (metricsSetting.getPrometheusFile() != null) {
+            metrics.writePrometheus(Paths.get(metricsSetting.getPrometheusFile()));
+        }
+
+        if (metricsSetting.getSummaryFile() != null) {
+            metrics.writeSummary(Paths.get(metricsSetting.getSummaryFile()));
+        } else {
+            writer.println(metrics.toSummaryJson());
+        }
+    }
+
+    private static void increment(LoadMetrics metrics, String counterName) {
+        if (metrics != null) {
+            metrics.increment(counterName);
+        }
+    }
+
+    private ResolvedNames resolveNames(Config config, OkHttpClient httpClient, AsyncLineWriter writer)
+            throws IOException {
+
+        Set<FieldType> fieldTypes = config.getFields().stream()
+                .filter(FieldSetting::isAutoResolve)
+                .map(FieldSetting::getType)
+                .collect(Collectors.toSet());
+
+        if (fieldTypes.isEmpty()) {
+            return null;
+        }
+
+        // 変換表の取得は起動時の1回のみ(行ごとには問い合わせない)
+        NameResolver.Names names = NameResolver.resolve(
+                newClient(config, httpClient, null),
+                config.getReadmineUrl(),
+                fieldTypes,
+                config.getNameCache());
+
+        writer.println(String.format("%d names were resolved %s.",
+                names.getNames().values().stream().mapToInt(Map::size).sum(),
+                names.isCached() ? "from the cache file" : "from Redmine"));
+
+        return new ResolvedNames(names.getNames(), names.getProjectNames());
+    }
+
+    private CustomFieldIndex prefetch(Config config, Client client, AsyncLineWriter writer) throws IOException {
+
+        if (!config.isPrefetch() || config.getMode() != LoadMode.UPDATE) {
+            return null;
+        }
+
+        FieldSetting primaryKeyFieldSetting = config.getFields().stream()
+                .filter(FieldSetting::isPrimaryKey)
+                .findFirst()
+                .get();
+
+        if (primaryKeyFieldSetting.getType() != FieldType.CUSTOM_FIELD) {
+            // チケットIDがキーの場合は索引不要
+            return null;
+        }
+
+        CustomFieldIndex index = CustomFieldIndex.load(
+                client, primaryKeyFieldSetting.getCustomFieldId(), config.getPrefetchProjectIds());
+        writer.println(String.format("%d keys were prefetched.", index.getSize()));
+
+        return index;
     }
 
     private void validate(Config config) {
@@ -131,11 +677,46 @@ public class IssueLoadRunner {
                         "Field type [" + primaryKeyFieldType + "] can not be used as a primary key.");
             }
         }
-    }
 
-    private void println(String message) {
-        if (out != null) {
-            out.println(message);
+        if (config.getFingerprint() != null) {
+
+            if (config.getMode() != LoadMode.UPDATE) {
+                // 新規作成ではキーが無いので、前回の内容と対応付けできない
+                throw new IllegalArgumentException("Fingerprint can only be used when updated.");
+            }
+
+            if (config.getFingerprint().getFile() == null) {
+                throw new IllegalArgumentException("Fingerprint file is not set.");
+            }
+        }
+
+        config.getFields().stream()
+                .filter(x -> x.isAutoResolve() && !NameResolver.RESOLVABLE_TYPES.contains(x.getType()))
+                .findFirst()
+                .ifPresent(x -> {
+                    // 一覧APIの無い項目は名称を解決できない
+                    throw new IllegalArgumentException(
+                            "Field type [" + x.getType() + "] can not be resolved automatically.");
+                });
+
+        if (config.getNameCache() != null && config.getNameCache().getFile() == null) {
+            throw new IllegalArgumentException("Name cache file is not set.");
+        }
+
+        if (config.getParentReference() != null) {
+
+            if (config.getMode() != LoadMode.CREATE) {
+                // 更新時は親チケットも既に存在する
+                throw new IllegalArgumentException("Parent reference can only be used when created.");
+            }
+
+            if (config.getParentReference().getKeyHeaderName() == null) {
+                throw new IllegalArgumentException("Key header of parent reference is not set.");
+            }
+
+            if (parentHeaderName(config) == null) {
+                throw new IllegalArgumentException("Parent issue field is not set.");
+            }
         }
     }
 }
@@ -4,37 +4,209 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.enjoyxstudy.redmine.issue.loader.client.Client;
 import com.enjoyxstudy.redmine.issue.loader.client.Issue;
 import com.enjoyxstudy.redmine.issue.loader.client.QueryParameter;
+import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
 import com.enjoyxstudy.redmine.issue.loader.input.IssueId;
 import com.enjoyxstudy.redmine.issue.loader.input.PrimaryKey;
+import com.enjoyxstudy.redmine.issue.loader.metrics.LoadMetrics;
+import com.enjoyxstudy.redmine.issue.loader.metrics.LoadMetrics.Phase;
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
 
 @Value
+@AllArgsConstructor
 public class IssueLoader {
 
     private static final QueryParameter ALL_STATUS_QUERY = new QueryParameter("status_id", "*");
 
     private final Client client;
 
+    // 事前に取得したカスタムフィールドの値→チケットIDの索引(無い場合は1件ずつ検索)
+    private final CustomFieldIndex customFieldIndex;
+
+    // 現在の内容と比較し、変更されたフィールドのみ更新するか
+    private final boolean deltaUpdate;
+
+    // 検索、作成、更新の時間を計測する場合に指定
+    private final LoadMetrics metrics;
+
+    private final LongAdder unchangedCount = new LongAdder();
+
+    private final LongAdder changedCount = new LongAdder();
+
+    public IssueLoader(Client client) {
+        this(client, null, false);
+    }
+
+    public IssueLoader(Client client, CustomFieldIndex customFieldIndex, boolean deltaUpdate) {
+        this(client, customFieldIndex, deltaUpdate, null);
+    }
+
     public IssueId create(Map<String, Object> targetFields) throws IOException {
 
         // 新規作成
+        long startNanos = System.nanoTime();
         int issueId = client.createIssue(targetFields);
+        record(Phase.CREATE, startNanos);
 
         return new IssueId(issueId);
     }
 
     public IssueId update(PrimaryKey key, Map<String, Object> targetFields) throws IOException {
 
+        long startNanos = System.nanoTime();
+        Issue targetIssue = findIssue(key);
+        record(Phase.LOOKUP, startNanos);
+        int targetIssueId = targetIssue.getId();
+
+        if (deltaUpdate) {
+
+            if (targetIssue.getAttributes().isEmpty()) {
+                // 索引から見つけた場合はIDしか持っていないので、現在の内容を取得
+                startNanos = System.nanoTime();
+                targetIssue = findIssue(new IssueId(targetIssueId));
+                record(Phase.LOOKUP, startNanos);
+            }
+
+            Map<String, Object> changedFields = IssueDelta.changedFields(targetIssue, targetFields);
+
+            if (changedFields.isEmpty()) {
+                // 変更が無い場合は更新しない
+                unchangedCount.increment();
+                return new IssueId(targetIssueId, true);
+            }
+
+            changedCount.increment();
+            targetFields = changedFields;
+        }
+
+        // 内容更新
+        startNanos = System.nanoTime();
+        client.updateIssue(targetIssueId, targetFields);
+        record(Phase.UPDATE, startNanos);
+
+        // 更新対象となったIssueIdを返却
+        return new IssueId(targetIssueId);
+    }
+
+    // 非同期版(検索→更新を応答を待たずに連結するので、少ないスレッドで多数のチケットを同時に処理できる)
+    public CompletableFuture<IssueId> createAsync(Map<String, Object> targetFields) {
+
+        long startNanos = System.nanoTime();
+        return client.createIssueAsync(targetFields)
+                .thenApply(issueId -> {
+                    record(Phase.CREATE, startNanos);
+                    return new IssueId(issueId);
+                });
+    }
+
+    public CompletableFuture<IssueId> updateAsync(PrimaryKey key, Map<String, Object> targetFields) {
+
+        long startNanos = System.nanoTime();
+
+        return findIssueAsync(key)
+                .thenCompose(targetIssue -> {
+                    record(Phase.LOOKUP, startNanos);
+
+                    if (deltaUpdate && targetIssue.getAttributes().isEmpty()) {
+                        // 索引から見つけた場合はIDしか持っていないので、現在の内容を取得
+                        long fetchStartNanos = System.nanoTime();
+                        return findIssueAsync(new IssueId(targetIssue.getId()))
+                                .thenApply(currentIssue -> {
+                                    record(Phase.LOOKUP, fetchStartNanos);
+                                    return currentIssue;
+                                });
+                    }
+                    return CompletableFuture.completedFuture(targetIssue);
+                })
+                .thenCompose(targetIssue -> {
+                    int targetIssueId = targetIssue.getId();
+                    Map<String, Object> updateFields = targetFields;
+
+                    if (deltaUpdate) {
+
+                        Map<String, Object> changedFields = IssueDelta.changedFields(targetIssue, targetFields);
+
+                        if (changedFields.isEmpty()) {
+                            // 変更が無い場合は更新しない
+                            unchangedCount.increment();
+                            return CompletableFuture.completedFuture(new IssueId(targetIssueId, true));
+                        }
+
+                        changedCount.increment();
+                        updateFields = changedFields;
+                    }
+
+                    long updateStartNanos = System.nanoTime();
+                    return client.updateIssueAsync(targetIssueId, updateFields)
+                            .thenApply(x -> {
+                                record(Phase.UPDATE, updateStartNanos);
+                                return new IssueId(targetIssueId);
+                            });
+                });
+    }
+
+    private Issue findIssue(PrimaryKey key) throws IOException {
+
+        Issue indexedIssue = findIndexedIssue(key);
+        if (indexedIssue != null) {
+            return indexedIssue;
+        }
+
         // キーとなる情報を使ってIssueを検索
-        List<Issue> targetIssues = client.getIssues(
-                Arrays.asList(
-                        ALL_STATUS_QUERY, // 終了しているチケットも対象にするため指定
-                        key.getQueryParameter()));
+        return singleIssue(key, client.getIssues(searchParameters(key)));
+    }
+
+    private CompletableFuture<Issue> findIssueAsync(PrimaryKey key) {
+
+        Issue indexedIssue;
+        try {
+            indexedIssue = findIndexedIssue(key);
+        } catch (IllegalStateException e) {
+            CompletableFuture<Issue> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        if (indexedIssue != null) {
+            return CompletableFuture.completedFuture(indexedIssue);
+        }
+
+        return client.getIssuesAsync(searchParameters(key))
+                .thenApply(targetIssues -> singleIssue(key, targetIssues));
+    }
+
+    private Issue findIndexedIssue(PrimaryKey key) {
+
+        if (customFieldIndex != null && key instanceof CustomField
+                && ((CustomField) key).getId() == customFieldIndex.getCustomFieldId()) {
+
+            int issueId = customFieldIndex.get(((CustomField) key).getValue());
+
+            if (issueId == CustomFieldIndex.DUPLICATE) {
+                throw new IllegalStateException("There are multiple target issue. " + key);
+            } else if (issueId != CustomFieldIndex.NOT_FOUND) {
+                return Issue.builder().id(issueId).build();
+            }
+            // 索引に無い場合は、取得対象外のプロジェクトの可能性もあるので検索する
+        }
+
+        return null;
+    }
+
+    private static List<QueryParameter> searchParameters(PrimaryKey key) {
+        return Arrays.asList(
+                ALL_STATUS_QUERY, // 終了しているチケットも対象にするため指定
+                key.getQueryParameter());
+    }
+
+    private static Issue singleIssue(PrimaryKey key, List<Issue> targetIssues) {
 
         // 1件ではない場合はエラー
         if (targetIssues.size() == 0) {
@@ -43,12 +215,12 @@ public class IssueLoader {
             throw new IllegalStateException("There are multiple target issue. " + key);
         }
 
-        int targetIssueId = targetIssues.get(0).getId();
-
-        // 内容更新
-        client.updateIssue(targetIssueId, targetFields);
+        return targetIssues.get(0);
+    }
 
-        // 更新対象となったIssueIdを返却
-        return new IssueId(targetIssueId);
+    private void record(Phase phase, long startNanos) {
+        if (metrics != null) {
+            metrics.record(phase, System.nanoTime() - startNanos);
+        }
     }
 }
@@ -0,0 +1,20 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.nio.file.Path;
+
+import lombok.Value;
+
+@Value
+public class JobResult {
+
+    private final Path csvPath;
+
+    private final int loadedCount;
+
+    // 失敗した場合のエラー内容(成功した場合はnull)
+    private final String error;
+
+    public boolean isSucceeded() {
+        return error == null;
+    }
+}
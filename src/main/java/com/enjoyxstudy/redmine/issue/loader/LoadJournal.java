@@ -0,0 +1,187 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import com.enjoyxstudy.redmine.issue.loader.input.IssueId;
+import com.enjoyxstudy.redmine.issue.loader.input.PrimaryKey;
+
+public class LoadJournal implements Closeable {
+
+    private static final int SYNC_BATCH_SIZE = 100;
+
+    private static final long SYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final FileChannel channel;
+
+    private final Writer writer;
+
+    private final BitSet committedRows;
+
+    // 行番号→前回までに作成、更新したチケットID(子の行に親として渡すため)
+    private final int[] committedIssueIds;
+
+    private int unsyncedCount;
+
+    private long lastSyncNanos = System.nanoTime();
+
+    private LoadJournal(FileChannel channel, BitSet committedRows, int[] committedIssueIds) {
+        this.channel = channel;
+        this.writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+        this.committedRows = committedRows;
+        this.committedIssueIds = committedIssueIds;
+    }
+
+    public static Path journalPath(Path csvPath) {
+        return Paths.get(csvPath.toString() + ".journal");
+    }
+
+    public static LoadJournal open(Path csvPath, boolean resume) throws IOException {
+
+        Path journalPath = journalPath(csvPath);
+
+        BitSet committedRows = new BitSet();
+        int[] committedIssueIds = new int[0];
+        if (resume && Files.exists(journalPath)) {
+            committedIssueIds = readCommittedRows(journalPath, committedRows);
+        }
+
+        FileChannel channel = resume
+                ? FileChannel.open(journalPath,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(journalPath,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        return new LoadJournal(channel, committedRows, committedIssueIds);
+    }
+
+    public boolean isCommitted(long rowNumber) {
+        return committedRows.get((int) rowNumber);
+    }
+
+    public int getIssueId(long rowNumber) {
+        return rowNumber < committedIssueIds.length ? committedIssueIds[(int) rowNumber] : 0;
+    }
+
+    public int getCommittedCount() {
+        return committedRows.cardinality();
+    }
+
+    public synchronized void commit(long rowNumber, PrimaryKey key, IssueId issueId, String status)
+            throws IOException {
+
+        // 行番号 / 状態 / チケットID / キー
+        writer.write(Long.toString(rowNumber));
+        writer.write('\t');
+        writer.write(status);
+        writer.write('\t');
+        writer.write(Integer.toString(issueId.getId()));
+        writer.write('\t');
+        if (key != null) {
+            writer.write(escape(key.getQueryParameter().getName() + "=" + key.getQueryParameter().getValue()));
+        }
+        writer.write('\n');
+
+        unsyncedCount++;
+
+        // 1件ごとにfsyncすると遅いので、件数か時間でまとめて行う
+        if (unsyncedCount >= SYNC_BATCH_SIZE || System.nanoTime() - lastSyncNanos >= SYNC_INTERVAL_NANOS) {
+            sync();
+        }
+    }
+
+    public synchronized void sync() throws IOException {
+
+        writer.flush();
+        channel.force(false);
+
+        unsyncedCount = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (!channel.isOpen()) {
+            return;
+        }
+
+        sync();
+        writer.close();
+    }
+
+    // キーの値にタブや改行があっても1行4列となるようにエスケープ
+    private static String escape(String value) {
+
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static int[] readCommittedRows(Path journalPath, BitSet committedRows) throws IOException {
+
+        int[] committedIssueIds = new int[1024];
+
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+
+                // キーは読み込まないので、エスケープ前の形式で記録されたタブも最後の列として扱う
+                String[] columns = line.split("\t", 4);
+                if (columns.length != 4) {
+                    // 途中で終了した場合の書きかけの行は無視
+                    continue;
+                }
+
+                try {
+                    int rowNumber = Integer.parseInt(columns[0]);
+                    int issueId = Integer.parseInt(columns[2]);
+
+                    committedRows.set(rowNumber);
+                    if (rowNumber >= committedIssueIds.length) {
+                        committedIssueIds = Arrays.copyOf(
+                                committedIssueIds, Math.max(committedIssueIds.length * 2, rowNumber + 1));
+                    }
+                    committedIssueIds[rowNumber] = issueId;
+                } catch (NumberFormatException e) {
+                    // 同上
+                }
+            }
+        }
+
+        return committedIssueIds;
+    }
+}
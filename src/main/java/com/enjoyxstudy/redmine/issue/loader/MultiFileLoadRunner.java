@@ -0,0 +1,87 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.enjoyxstudy.redmine.issue.loader.client.HttpTransport;
+import com.enjoyxstudy.redmine.issue.loader.input.Config;
+import com.enjoyxstudy.redmine.issue.loader.input.JobManifest;
+import com.enjoyxstudy.redmine.issue.loader.input.JobSetting;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import okhttp3.OkHttpClient;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class MultiFileLoadRunner {
+
+    private PrintStream out;
+
+    public List<JobResult> execute(JobManifest manifest) throws IOException {
+
+        if (manifest.getJobs().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 接続プールを全ファイルで共有し、ファイルごとに接続し直さないようにする
+        OkHttpClient httpClient = HttpTransport.newHttpClient(manifest.getTransport(), manifest.getParallelism());
+
+        // 全ファイル合計の同時実行数の枠(公平に割り当てるため、待っている順に取得させる)
+        Semaphore budget = new Semaphore(manifest.getParallelism(), true);
+
+        ExecutorService jobExecutor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(manifest.getMaxConcurrentJobs(), manifest.getJobs().size())));
+
+        try {
+            List<Future<JobResult>> futures = new ArrayList<>();
+            for (JobSetting job : manifest.getJobs()) {
+                futures.add(jobExecutor.submit(() -> executeJob(
+                        out, manifest.resolve(job.getConfig()), manifest.resolve(job.getCsv()), false,
+                        httpClient, budget)));
+            }
+
+            List<JobResult> results = new ArrayList<>();
+            for (Future<JobResult> future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            jobExecutor.shutdownNow();
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+    }
+
+    static JobResult executeJob(
+            PrintStream out, Path configPath, Path csvPath, boolean resume,
+            OkHttpClient httpClient, Semaphore budget) {
+
+        String name = csvPath.getFileName().toString();
+        IssueLoadRunner runner = new IssueLoadRunner(out, httpClient, budget, "[" + name + "] ");
+
+        try {
+            int loadedCount = runner.execute(Config.of(configPath), csvPath, resume);
+            return new JobResult(csvPath, loadedCount, null);
+        } catch (IOException | RuntimeException e) {
+            // 1ファイルの失敗で他のファイルの処理は止めない
+            return new JobResult(csvPath, 0, e.toString());
+        }
+    }
+}
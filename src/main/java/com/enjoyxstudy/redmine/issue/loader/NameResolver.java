@@ -0,0 +1,353 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.enjoyxstudy.redmine.issue.loader.client.Client;
+import com.enjoyxstudy.redmine.issue.loader.client.QueryParameter;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
+import com.enjoyxstudy.redmine.issue.loader.input.NameCacheSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.ResolvedNames;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// 名称→IDの変換表を、Redmineの一覧APIから起動時にまとめて取得する(行ごとの問い合わせはしない)
+@Slf4j
+public class NameResolver {
+
+    public static final Set<FieldType> RESOLVABLE_TYPES = Collections.unmodifiableSet(EnumSet.of(
+            FieldType.PROJECT_ID,
+            FieldType.TRACKER_ID,
+            FieldType.STATUS_ID,
+            FieldType.PRIORITY_ID,
+            FieldType.ASSIGNED_TO_ID,
+            FieldType.CATEGORY_ID,
+            FieldType.FIXED_VERSION_ID));
+
+    // 名称がプロジェクトごとに決まるもの(別のプロジェクトで同じ名称が使われることが多い)
+    public static final Set<FieldType> PROJECT_SCOPED_TYPES = Collections.unmodifiableSet(EnumSet.of(
+            FieldType.CATEGORY_ID,
+            FieldType.FIXED_VERSION_ID));
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Names {
+
+        private String redmineUrl;
+
+        private long fetchedAtMillis;
+
+        private Map<FieldType, Map<String, String>> names;
+
+        // フィールドの種類→プロジェクトID→名称→ID(PROJECT_SCOPED_TYPESのみ)
+        private Map<FieldType, Map<String, Map<String, String>>> projectNames;
+
+        // キャッシュファイルから読み込んだか
+        @JsonIgnore
+        private boolean cached;
+    }
+
+    public static Names resolve(Client client, String redmineUrl, Set<FieldType> fieldTypes,
+            NameCacheSetting cacheSetting) throws IOException {
+
+        Path cachePath = cacheSetting != null ? Paths.get(cacheSetting.getFile()) : null;
+
+        if (cachePath != null && Files.exists(cachePath)) {
+
+            Names cachedNames = objectMapper.readValue(cachePath.toFile(), Names.class);
+
+            if (redmineUrl.equals(cachedNames.getRedmineUrl())
+                    && cachedNames.getNames().keySet().containsAll(fieldTypes)
+                    && containsProjectNames(cachedNames, fieldTypes)
+                    && System.currentTimeMillis() - cachedNames.getFetchedAtMillis()
+                            < cacheSetting.getTtlSeconds() * 1000) {
+                cachedNames.setCached(true);
+                return cachedNames;
+            }
+        }
+
+        ResolvedNames resolvedNames = fetch(client, fieldTypes);
+        Names names = new Names(
+                redmineUrl,
+                System.currentTimeMillis(),
+                resolvedNames.getNames(),
+                resolvedNames.getProjectNames(),
+                false);
+
+        if (cachePath != null) {
+            // 書き込み途中のファイルを読まないよう、一時ファイルから置き換える
+            Path absoluteCachePath = cachePath.toAbsolutePath();
+            Files.createDirectories(absoluteCachePath.getParent());
+            Path temporaryPath = Files.createTempFile(absoluteCachePath.getParent(), "names", ".tmp");
+            objectMapper.writeValue(temporaryPath.toFile(), names);
+            Files.move(temporaryPath, absoluteCachePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return names;
+    }
+
+    private static boolean containsProjectNames(Names cachedNames, Set<FieldType> fieldTypes) {
+
+        // プロジェクトごとの変換表が無い、古い形式のキャッシュファイルは取得し直す
+        for (FieldType fieldType : fieldTypes) {
+            if (PROJECT_SCOPED_TYPES.contains(fieldType)
+                    && (cachedNames.getProjectNames() == null
+                            || !cachedNames.getProjectNames().containsKey(fieldType))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ResolvedNames fetch(Client client, Set<FieldType> fieldTypes) throws IOException {
+
+        // バージョンとカテゴリはプロジェクトごとに取得するため、プロジェクトの一覧は1回だけ取得して使い回す
+        CompletableFuture<List<JsonNode>> projects = fieldTypes.contains(FieldType.PROJECT_ID)
+                || fieldTypes.contains(FieldType.FIXED_VERSION_ID)
+                || fieldTypes.contains(FieldType.CATEGORY_ID)
+                        ? fetchAll(client, "projects.json", "projects")
+                        : null;
+
+        // 各一覧は並行して取得
+        Map<FieldType, CompletableFuture<Map<String, String>>> futures = new EnumMap<>(FieldType.class);
+        Map<FieldType, CompletableFuture<Map<String, Map<String, String>>>> projectFutures =
+                new EnumMap<>(FieldType.class);
+        for (FieldType fieldType : fieldTypes) {
+            switch (fieldType) {
+                case PROJECT_ID:
+                    futures.put(fieldType, projects.thenApply(x -> names(x, "name", "identifier")));
+                    break;
+                case TRACKER_ID:
+                    futures.put(fieldType,
+                            fetchOnce(client, "trackers.json", "trackers").thenApply(x -> names(x, "name")));
+                    break;
+                case STATUS_ID:
+                    futures.put(fieldType,
+                            fetchOnce(client, "issue_statuses.json", "issue_statuses")
+                                    .thenApply(x -> names(x, "name")));
+                    break;
+                case PRIORITY_ID:
+                    futures.put(fieldType,
+                            fetchOnce(client, "enumerations/issue_priorities.json", "issue_priorities")
+                                    .thenApply(x -> names(x, "name")));
+                    break;
+                case ASSIGNED_TO_ID:
+                    futures.put(fieldType,
+                            fetchAll(client, "users.json", "users").thenApply(NameResolver::userNames));
+                    break;
+                case FIXED_VERSION_ID:
+                    projectFutures.put(fieldType,
+                            projects.thenCompose(x -> fetchPerProject(client, x, "versions.json", "versions")));
+                    break;
+                case CATEGORY_ID:
+                    projectFutures.put(fieldType,
+                            projects.thenCompose(x -> fetchPerProject(client, x, "issue_categories.json",
+                                    "issue_categories")));
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            String.format("%s can not be resolved automatically.", fieldType));
+            }
+        }
+
+        Map<FieldType, Map<String, String>> names = new EnumMap<>(FieldType.class);
+        Map<FieldType, Map<String, Map<String, String>>> projectNames = new EnumMap<>(FieldType.class);
+        try {
+            for (Map.Entry<FieldType, CompletableFuture<Map<String, String>>> future : futures.entrySet()) {
+                names.put(future.getKey(), future.getValue().join());
+            }
+            for (Map.Entry<FieldType, CompletableFuture<Map<String, Map<String, String>>>> future
+                    : projectFutures.entrySet()) {
+                projectNames.put(future.getKey(), future.getValue().join());
+                // CSVにプロジェクトが無い場合に使用する、全プロジェクトで一意な名称のみの変換表
+                names.put(future.getKey(), uniqueNames(future.getValue().join()));
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+
+        return new ResolvedNames(names, projectNames);
+    }
+
+    private static CompletableFuture<List<JsonNode>> fetchOnce(Client client, String path, String name) {
+        return client.getResourceAsync(path, Collections.emptyList())
+                .thenApply(x -> elements(x, name));
+    }
+
+    private static CompletableFuture<List<JsonNode>> fetchAll(Client client, String path, String name) {
+
+        // 1ページ目で件数がわかるので、残りのページはまとめて取得
+        return client.getResourceAsync(path, page(0, PAGE_SIZE))
+                .thenCompose(firstPage -> {
+
+                    // サーバ側の上限でページの大きさが小さくなる場合もある
+                    int limit = firstPage.path("limit").asInt(PAGE_SIZE);
+                    int totalCount = firstPage.path("total_count").asInt(0);
+
+                    List<CompletableFuture<JsonNode>> pages = new ArrayList<>();
+                    pages.add(CompletableFuture.completedFuture(firstPage));
+                    for (int offset = limit; limit > 0 && offset < totalCount; offset += limit) {
+                        pages.add(client.getResourceAsync(path, page(offset, limit)));
+                    }
+
+                    return CompletableFuture.allOf(pages.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(x -> {
+                                List<JsonNode> elements = new ArrayList<>();
+                                for (CompletableFuture<JsonNode> page : pages) {
+                                    elements.addAll(elements(page.join(), name));
+                                }
+                                return elements;
+                            });
+                });
+    }
+
+    private static CompletableFuture<Map<String, Map<String, String>>> fetchPerProject(Client client,
+            List<JsonNode> projects, String path, String name) {
+
+        Map<String, CompletableFuture<List<JsonNode>>> futures = new HashMap<>();
+        for (JsonNode project : projects) {
+            String projectId = project.path("id").asText();
+            futures.put(projectId, fetchOnce(client, "projects/" + projectId + "/" + path, name));
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(x -> {
+                    // 「1.0」のような名称は多くのプロジェクトで使われるため、プロジェクトごとに変換表を分ける
+                    // (共有されたバージョンは、共有先のプロジェクトの一覧にも含まれる)
+                    Map<String, Map<String, String>> projectNames = new HashMap<>();
+                    for (Map.Entry<String, CompletableFuture<List<JsonNode>>> future : futures.entrySet()) {
+                        projectNames.put(future.getKey(), names(future.getValue().join(), "name"));
+                    }
+                    return projectNames;
+                });
+    }
+
+    private static Map<String, String> uniqueNames(Map<String, Map<String, String>> projectNames) {
+
+        Map<String, String> names = new HashMap<>();
+        Set<String> ambiguousNames = new HashSet<>();
+
+        for (Map<String, String> projectName : projectNames.values()) {
+            for (Map.Entry<String, String> name : projectName.entrySet()) {
+
+                if (ambiguousNames.contains(name.getKey())) {
+                    continue;
+                }
+
+                String existingId = names.putIfAbsent(name.getKey(), name.getValue());
+                if (existingId != null && !existingId.equals(name.getValue())) {
+                    // プロジェクトごとの変換表があるので、ここでは警告しない
+                    names.remove(name.getKey());
+                    ambiguousNames.add(name.getKey());
+                }
+            }
+        }
+
+        return names;
+    }
+
+    private static List<QueryParameter> page(int offset, int limit) {
+        return Arrays.asList(
+                new QueryParameter("limit", String.valueOf(limit)),
+                new QueryParameter("offset", String.valueOf(offset)));
+    }
+
+    private static List<JsonNode> elements(JsonNode body, String name) {
+
+        JsonNode array = body.path(name);
+        if (!array.isArray()) {
+            throw new UncheckedIOException(
+                    new IOException(String.format("Unexpected response from Redmine API. (%s)", name)));
+        }
+
+        List<JsonNode> elements = new ArrayList<>(array.size());
+        array.forEach(elements::add);
+        return elements;
+    }
+
+    private static Map<String, String> names(List<JsonNode> elements, String... nameFields) {
+        return names(elements, x -> {
+            List<String> values = new ArrayList<>();
+            for (String nameField : nameFields) {
+                values.add(x.path(nameField).asText(""));
+            }
+            return values;
+        });
+    }
+
+    private static Map<String, String> userNames(List<JsonNode> users) {
+        // ログインIDと、姓名(表示形式の設定によってどちらの順でも指定できるように)
+        return names(users, x -> {
+            String firstname = x.path("firstname").asText("");
+            String lastname = x.path("lastname").asText("");
+            return Arrays.asList(
+                    x.path("login").asText(""),
+                    firstname + " " + lastname,
+                    lastname + " " + firstname);
+        });
+    }
+
+    private static Map<String, String> names(List<JsonNode> elements, Function<JsonNode, List<String>> nameFunction) {
+
+        Map<String, String> names = new HashMap<>();
+        Set<String> ambiguousNames = new HashSet<>();
+
+        for (JsonNode element : elements) {
+
+            String id = element.path("id").asText();
+
+            for (String name : new HashSet<>(nameFunction.apply(element))) {
+
+                if (name.trim().isEmpty() || ambiguousNames.contains(name)) {
+                    continue;
+                }
+
+                String existingId = names.putIfAbsent(name, id);
+                if (existingId != null && !existingId.equals(id)) {
+                    // 同じ名称で別のものがある場合は、どちらとも決められないので変換表に含めない
+                    names.remove(name);
+                    ambiguousNames.add(name);
+                }
+            }
+        }
+
+        if (!ambiguousNames.isEmpty()) {
+            log.warn("Names {} are ambiguous, so specify them in mappings.", ambiguousNames);
+        }
+
+        return names;
+    }
+}
@@ -0,0 +1,332 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.enjoyxstudy.redmine.issue.loader.input.IssueRecords;
+import com.enjoyxstudy.redmine.issue.loader.input.ValidationError;
+
+import lombok.Getter;
+
+// 同じCSV内の行を親として参照する場合の依存関係
+// 行数が多くても収まるよう、行番号をそのまま添字としたint配列で保持し、オブジェクトは作らない
+public class ParentGraph {
+
+    public static final int NONE = 0;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 行番号→親の行番号(親が無い、または既存のチケットを指定した場合はNONE)
+    private int[] parentRows = new int[1024];
+
+    // 行番号→子の行数
+    private int[] childCounts = new int[1024];
+
+    // 行のキーのハッシュ値→行番号(オープンアドレス法、0は空き)
+    private long[] keyHashes = new long[1024];
+
+    private int[] keyRows = new int[1024];
+
+    private int keyCount;
+
+    @Getter
+    private int rowCount;
+
+    @Getter
+    private int childRowCount;
+
+    // 祖先に後ろの行を含む行(その行を読むまで処理を始められない)
+    private final BitSet waitingRows = new BitSet();
+
+    // 後ろの行を参照している場合、その行を読むまで解決できないので値を保持しておく
+    private final Map<Integer, String> forwardReferences = new HashMap<>();
+
+    @Getter
+    private final List<ValidationError> errors = new ArrayList<>();
+
+    private final String keyHeaderName;
+
+    private final String parentHeaderName;
+
+    private ParentGraph(String keyHeaderName, String parentHeaderName) {
+        this.keyHeaderName = keyHeaderName;
+        this.parentHeaderName = parentHeaderName;
+    }
+
+    // 全行を読み込んで依存関係を作成し、参照先の無い行や循環している行をエラーとして集める
+    // 行の値は変換しないので、値に誤りのある行があっても参照の誤りは全て集まる
+    public static ParentGraph build(IssueRecords issueRecords, String keyHeaderName,
+            String parentHeaderName) throws IOException {
+
+        ParentGraph graph = new ParentGraph(keyHeaderName, parentHeaderName);
+
+        issueRecords.forEachRowReference(graph::add);
+
+        graph.resolveForwardReferences();
+        graph.checkCycles();
+        if (graph.errors.isEmpty()) {
+            graph.findWaitingRows();
+        }
+
+        return graph;
+    }
+
+    public int getParentRow(long rowNumber) {
+        return rowNumber < parentRows.length ? parentRows[(int) rowNumber] : NONE;
+    }
+
+    public int getChildCount(long rowNumber) {
+        return rowNumber < childCounts.length ? childCounts[(int) rowNumber] : 0;
+    }
+
+    public boolean isWaitingForLaterRow(long rowNumber) {
+        return waitingRows.get((int) rowNumber);
+    }
+
+    private void add(long rowNumber, String key, String parent) {
+
+        int row = Math.toIntExact(rowNumber);
+        ensureCapacity(row);
+        rowCount = Math.max(rowCount, row);
+
+        if (key != null && !key.isEmpty()) {
+
+            int existingRow = putKey(keyHash(key), row);
+            if (existingRow != NONE) {
+                errors.add(new ValidationError(
+                        row, keyHeaderName, String.format("Key %s is also used in row %d.", key, existingRow)));
+            }
+        }
+
+        if (parent == null || parent.isEmpty()) {
+            return;
+        }
+
+        int parentRow = getKey(keyHash(parent));
+        if (parentRow != NONE) {
+            setParent(row, parentRow);
+        } else {
+            // 後ろの行のキーか既存のチケットIDかは、全行を読むまでわからない
+            forwardReferences.put(row, parent);
+        }
+    }
+
+    private void resolveForwardReferences() {
+
+        for (Map.Entry<Integer, String> forwardReference : forwardReferences.entrySet()) {
+
+            int row = forwardReference.getKey();
+            String parent = forwardReference.getValue();
+
+            int parentRow = getKey(keyHash(parent));
+            if (parentRow != NONE) {
+                setParent(row, parentRow);
+            } else if (!isIssueId(parent)) {
+                // 行のキーにも無く、チケットIDでもない
+                errors.add(new ValidationError(
+                        row, parentHeaderName, String.format("Parent %s was not found in the CSV file.", parent)));
+            }
+            // 行のキーに無い数値は、既存のチケットIDとしてそのまま使用
+        }
+
+        forwardReferences.clear();
+
+        // 作成後は参照しないので解放
+        keyHashes = null;
+        keyRows = null;
+    }
+
+    private void checkCycles() {
+
+        // 0: 未確認 / 1: 確認中 / 2: 確認済み
+        byte[] states = new byte[rowCount + 1];
+        int[] path = new int[16];
+
+        for (int row = 1; row <= rowCount; row++) {
+
+            int length = 0;
+            int current = row;
+
+            // 親をたどり、確認中の行に戻ってきた場合は循環している
+            while (current != NONE && states[current] == 0) {
+                states[current] = 1;
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = current;
+                current = parentRows[current];
+            }
+
+            if (current != NONE && states[current] == 1) {
+
+                StringBuilder cycle = new StringBuilder();
+                for (int i = indexOf(path, length, current); i < length; i++) {
+                    cycle.append(path[i]).append(" -> ");
+                }
+                cycle.append(current);
+
+                errors.add(new ValidationError(
+                        current,
+                        parentHeaderName,
+                        String.format("Parent references are circular. (rows %s)", cycle)));
+            }
+
+            for (int i = 0; i < length; i++) {
+                states[path[i]] = 2;
+            }
+        }
+    }
+
+    private void findWaitingRows() {
+
+        // 行番号→祖先の中で最も後ろの行番号(循環が無いことを確認した後に呼び出すこと)
+        int[] lastAncestorRows = new int[rowCount + 1];
+        BitSet computed = new BitSet(rowCount + 1);
+        int[] path = new int[16];
+
+        for (int row = 1; row <= rowCount; row++) {
+
+            int length = 0;
+            int current = row;
+
+            while (current != NONE && !computed.get(current)) {
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = current;
+                current = parentRows[current];
+            }
+
+            // 親に近い方から順に求める
+            for (int i = length - 1; i >= 0; i--) {
+                int parentRow = parentRows[path[i]];
+                lastAncestorRows[path[i]] = parentRow == NONE
+                        ? NONE
+                        : Math.max(parentRow, lastAncestorRows[parentRow]);
+                computed.set(path[i]);
+
+                if (lastAncestorRows[path[i]] > path[i]) {
+                    waitingRows.set(path[i]);
+                }
+            }
+        }
+    }
+
+    private void setParent(int row, int parentRow) {
+
+        parentRows[row] = parentRow;
+        childCounts[parentRow]++;
+        childRowCount++;
+    }
+
+    private void ensureCapacity(int row) {
+
+        if (row < parentRows.length) {
+            return;
+        }
+
+        int newLength = Math.max(parentRows.length * 2, row + 1);
+        parentRows = Arrays.copyOf(parentRows, newLength);
+        childCounts = Arrays.copyOf(childCounts, newLength);
+    }
+
+    private int putKey(long hash, int row) {
+
+        int slot = indexOf(hash);
+        if (keyHashes[slot] == hash) {
+            return keyRows[slot];
+        }
+
+        keyHashes[slot] = hash;
+        keyRows[slot] = row;
+        keyCount++;
+
+        if (keyCount * 2 > keyHashes.length) {
+            resize();
+        }
+
+        return NONE;
+    }
+
+    private int getKey(long hash) {
+
+        int slot = indexOf(hash);
+        return keyHashes[slot] == hash ? keyRows[slot] : NONE;
+    }
+
+    private int indexOf(long hash) {
+
+        int mask = keyHashes.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+
+        while (keyHashes[slot] != 0 && keyHashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize() {
+
+        long[] oldKeyHashes = keyHashes;
+        int[] oldKeyRows = keyRows;
+
+        keyHashes = new long[oldKeyHashes.length * 2];
+        keyRows = new int[oldKeyRows.length * 2];
+
+        for (int i = 0; i < oldKeyHashes.length; i++) {
+            if (oldKeyHashes[i] != 0) {
+                int slot = indexOf(oldKeyHashes[i]);
+                keyHashes[slot] = oldKeyHashes[i];
+                keyRows[slot] = oldKeyRows[i];
+            }
+        }
+    }
+
+    private static long keyHash(String key) {
+
+        // 文字列を保持しないよう、64bitのハッシュ値で比較する(FNV-1a)
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        // 0は空きスロットを表すので使わない
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static boolean isIssueId(String value) {
+
+        if (value.length() > 9) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return Integer.parseInt(value) > 0;
+    }
+
+    private static int indexOf(int[] values, int length, int value) {
+
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
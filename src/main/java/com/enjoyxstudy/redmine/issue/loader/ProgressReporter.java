@@ -0,0 +1,125 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.enjoyxstudy.redmine.issue.loader.input.IssueRecords;
+
+class ProgressReporter implements Closeable {
+
+    private final AsyncLineWriter writer;
+
+    private final IssueRecords issueRecords;
+
+    // 失敗したリクエスト数(再試行で成功したものも含む)
+    private final LongSupplier errorCount;
+
+    private final LongAdder submittedCount = new LongAdder();
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder skippedCount = new LongAdder();
+
+    private final long startNanos = System.nanoTime();
+
+    private final ScheduledExecutorService scheduler;
+
+    private long lastCompleted;
+
+    private long lastNanos = startNanos;
+
+    ProgressReporter(AsyncLineWriter writer, IssueRecords issueRecords, LongSupplier errorCount,
+            int intervalSeconds) {
+
+        this.writer = writer;
+        this.issueRecords = issueRecords;
+        this.errorCount = errorCount;
+
+        if (intervalSeconds <= 0) {
+            this.scheduler = null;
+            return;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    void onSubmitted() {
+        submittedCount.increment();
+    }
+
+    void onCompleted() {
+        completedCount.increment();
+    }
+
+    void onSkipped() {
+        skippedCount.increment();
+    }
+
+    @Override
+    public void close() {
+
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 最終的な状態も出力
+        report();
+    }
+
+    synchronized void report() {
+
+        long nowNanos = System.nanoTime();
+        long submitted = submittedCount.sum();
+        long completed = completedCount.sum();
+        long skipped = skippedCount.sum();
+        long done = completed + skipped;
+
+        // 全体の行数は、読み込み済みの行数とバイト数の比率から見積もる
+        long read = submitted + skipped;
+        long bytesRead = issueRecords.getBytesRead();
+        long estimatedTotal = bytesRead > 0
+                ? Math.max(read, Math.round((double) read * issueRecords.getTotalBytes() / bytesRead))
+                : 0;
+
+        double intervalSeconds = (nowNanos - lastNanos) / 1_000_000_000.0;
+        double rowsPerSecond = intervalSeconds > 0 ? (completed - lastCompleted) / intervalSeconds : 0;
+
+        double elapsedSeconds = (nowNanos - startNanos) / 1_000_000_000.0;
+        double averageRowsPerSecond = elapsedSeconds > 0 ? completed / elapsedSeconds : 0;
+
+        writer.println(String.format(
+                "Progress: %d/%s rows (%s), %.1f rows/s, %d in flight, %d errors, ETA %s",
+                done,
+                estimatedTotal > 0 ? "~" + estimatedTotal : "?",
+                estimatedTotal > 0 ? String.format("%.1f%%", done * 100.0 / estimatedTotal) : "-",
+                rowsPerSecond,
+                submitted - completed,
+                errorCount.getAsLong(),
+                averageRowsPerSecond > 0 && estimatedTotal > 0
+                        ? formatDuration(Math.round(Math.max(0, estimatedTotal - done) / averageRowsPerSecond))
+                        : "-"));
+
+        lastCompleted = completed;
+        lastNanos = nowNanos;
+    }
+
+    private static String formatDuration(long seconds) {
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
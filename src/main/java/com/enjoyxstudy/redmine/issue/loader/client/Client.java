@@ -1,32 +1,91 @@
 package com.enjoyxstudy.redmine.issue.loader.client;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.enjoyxstudy.redmine.issue.loader.input.BasicAuth;
+import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueFields;
+import com.enjoyxstudy.redmine.issue.loader.metrics.LoadMetrics;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 
+import lombok.AccessLevel;
 import lombok.Builder;
+import lombok.Getter;
 import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
 
 @Value
 @Builder
+@Slf4j
 public class Client {
 
-    private final OkHttpClient httpClient = new OkHttpClient();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+
+    // 計測時のエンドポイント名(チケットIDなどは含めない)
+    private static final String SEARCH_ENDPOINT = "GET /issues.json";
+
+    private static final String CREATE_ENDPOINT = "POST /issues.json";
+
+    private static final String UPDATE_ENDPOINT = "PUT /issues/:id.json";
+
+    // 未指定の場合に使用するクライアント(接続プールを共有するため、インスタンスごとには作成しない)
+    private static final OkHttpClient DEFAULT_HTTP_CLIENT = new OkHttpClient();
+
+    // 非同期での再試行の待機用(待機中にスレッドを占有しないよう、スケジュールして再送する)
+    private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "redmine-client-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final QueryParameter ALL_STATUS_QUERY = new QueryParameter("status_id", "*");
+
+    private final OkHttpClient httpClient;
 
     private final ObjectMapper objectMapper = new ObjectMapper()
-            .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+            .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+            // バッファへ直接書き込むため、書き込み後にストリームを閉じない
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
 
     private final String redmineBaseUrl;
 
@@ -34,87 +93,469 @@ public class Client {
 
     private final BasicAuth basicAuth;
 
+    // 同時実行数を応答状況に応じて調整する場合に指定
+    private final ConcurrencyLimiter limiter;
+
+    // 未指定の場合、同時実行数の自動調整時は過負荷時のみ再送、それ以外は再試行しない
+    private final RetryPolicy retryPolicy;
+
+    // 新規作成を再試行する際に、既に作成済みか確認するための目印を格納するカスタムフィールド
+    private final Integer idempotencyCustomFieldId;
+
+    // リクエストごとの応答時間を計測する場合に指定
+    private final LoadMetrics metrics;
+
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final HttpUrl baseUrl = HttpUrl.get(redmineBaseUrl);
+
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final HttpUrl issuesUrl = getBaseUrl().resolve("issues.json");
+
+    // リクエストごとにBase64エンコードしないよう保持
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final String authorizationValue = basicAuth.toAuthorizationValue();
+
+    public static class ClientBuilder {
+
+        private OkHttpClient httpClient = DEFAULT_HTTP_CLIENT;
+    }
+
     public List<Issue> getIssues(List<QueryParameter> queryParameters) throws IOException {
-        return get("issues.json", queryParameters, IssuesBody.class).getIssues();
+        return searchIssues(queryParameters).getIssues();
+    }
+
+    public IssuesBody searchIssues(List<QueryParameter> queryParameters) throws IOException {
+        return get(SEARCH_ENDPOINT, getIssuesUrl(), queryParameters, IssuesBody.class);
     }
 
     public int createIssue(Map<String, Object> targetFields) throws IOException {
-        return (int) post("issues.json", new IssueBody(targetFields), IssueBody.class).getFields().get("id");
+
+        if (idempotencyCustomFieldId == null) {
+            return post(CREATE_ENDPOINT, getIssuesUrl(), new IssueBody(targetFields), Client::readIssueId);
+        }
+
+        // 行ごとに一意な目印を付けて作成し、失敗した場合は目印で作成済みか確認してから再送する
+        String marker = UUID.randomUUID().toString();
+        CustomField markerField = new CustomField(idempotencyCustomFieldId, marker);
+        IssueBody issueBody = new IssueBody(withCustomField(targetFields, markerField));
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                return post(CREATE_ENDPOINT, getIssuesUrl(), issueBody, Client::readIssueId);
+            } catch (IOException e) {
+
+                long backoffMillis = getEffectiveRetryPolicy().nextBackoffMillis(attempt, e, true);
+                if (backoffMillis < 0) {
+                    throw e;
+                }
+
+                log.warn("Failed to create issue, retry after {} ms. ({})", backoffMillis, e.getMessage());
+                sleep(backoffMillis);
+
+                List<Issue> createdIssues = getIssues(Arrays.asList(
+                        ALL_STATUS_QUERY,
+                        markerField.getQueryParameter()));
+                if (!createdIssues.isEmpty()) {
+                    // 応答は受け取れなかったが作成はされていた
+                    return createdIssues.get(0).getId();
+                }
+            }
+        }
     }
 
     public void updateIssue(int issueId, Map<String, Object> targetFields) throws IOException {
-        put("issues/" + issueId + ".json", new IssueBody(targetFields));
+        put(UPDATE_ENDPOINT, getBaseUrl().resolve("issues/" + issueId + ".json"), new IssueBody(targetFields));
+    }
+
+    // 以降は非同期版(OkHttpのDispatcherで送信し、応答を待つ間スレッドを占有しない)
+    // 同時に送信する数はDispatcherのmaxRequests/maxRequestsPerHostで制限され、超えた分はキューで待つ
+    // (limiterは空きを待つ間スレッドを止めてしまうため使用しない)
+    public CompletableFuture<List<Issue>> getIssuesAsync(List<QueryParameter> queryParameters) {
+        return searchIssuesAsync(queryParameters).thenApply(IssuesBody::getIssues);
     }
 
-    private <T> T get(String path, List<QueryParameter> queryParameters, Class<T> responseType) throws IOException {
+    public CompletableFuture<IssuesBody> searchIssuesAsync(List<QueryParameter> queryParameters) {
+        return executeAsync(SEARCH_ENDPOINT, newGetRequest(getIssuesUrl(), queryParameters), true,
+                x -> objectMapper.readValue(x, IssuesBody.class));
+    }
 
-        okhttp3.HttpUrl.Builder httpUrlBuilder = HttpUrl.get(redmineBaseUrl)
-                .resolve(path)
-                .newBuilder();
+    public CompletableFuture<Integer> createIssueAsync(Map<String, Object> targetFields) {
 
-        for (QueryParameter queryParameter : queryParameters) {
-            httpUrlBuilder.addQueryParameter(queryParameter.getName(), queryParameter.getValue());
+        if (idempotencyCustomFieldId == null) {
+            return executeAsync(CREATE_ENDPOINT, newPostRequest(getIssuesUrl(), new IssueBody(targetFields)), false,
+                    Client::readIssueId);
+        }
+
+        // 同期版と同様に、目印を付けて作成し、失敗した場合は作成済みか確認してから再送する
+        String marker = UUID.randomUUID().toString();
+        CustomField markerField = new CustomField(idempotencyCustomFieldId, marker);
+        Request request = newPostRequest(getIssuesUrl(), new IssueBody(withCustomField(targetFields, markerField)));
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        createIssueAsync(request, markerField, 1, result);
+        return result;
+    }
+
+    // チケット以外の一覧(プロジェクト、トラッカーなど)を取得
+    public CompletableFuture<JsonNode> getResourceAsync(String path, List<QueryParameter> queryParameters) {
+
+        // 計測時はプロジェクトIDなどを除いたパスで集計
+        return executeAsync("GET /" + path.replaceAll("/\\d+/", "/:id/"),
+                newGetRequest(getBaseUrl().resolve(path), queryParameters), true, objectMapper::readTree);
+    }
+
+    public CompletableFuture<Void> updateIssueAsync(int issueId, Map<String, Object> targetFields) {
+
+        Request request = newPutRequest(
+                getBaseUrl().resolve("issues/" + issueId + ".json"), new IssueBody(targetFields));
+
+        return executeAsync(UPDATE_ENDPOINT, request, true, x -> null);
+    }
+
+    public void prewarm(int connections) throws IOException {
+
+        if (connections <= 0) {
+            return;
         }
 
-        Request request = newRequestBuilder(httpUrlBuilder.build())
+        // 同時にリクエストを送ることで、指定数の接続を事前に確立しておく
+        HttpUrl url = getIssuesUrl().newBuilder()
+                .addQueryParameter("limit", "1")
                 .build();
 
-        Response response = httpClient.newCall(request).execute();
+        CountDownLatch latch = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            httpClient.newCall(newRequestBuilder(url).build()).enqueue(new Callback() {
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    // 事前接続に失敗しても、本処理で改めて接続するので無視
+                    latch.countDown();
+                }
+            });
+        }
 
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to call Redmine API. " + response);
+        try {
+            latch.await(httpClient.connectTimeoutMillis() + httpClient.readTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
         }
+    }
 
-        return objectMapper.readValue(
-                response.body().string(),
-                responseType);
+    private <T> T get(String endpoint, HttpUrl url, List<QueryParameter> queryParameters, Class<T> responseType)
+            throws IOException {
+
+        return execute(endpoint, newGetRequest(url, queryParameters), true,
+                x -> objectMapper.readValue(x, responseType));
+    }
+
+    private <T> T post(String endpoint, HttpUrl url, Object body, ResponseReader<T> responseReader)
+            throws IOException {
+        return execute(endpoint, newPostRequest(url, body), false, responseReader);
+    }
+
+    private void put(String endpoint, HttpUrl url, Object body) throws IOException {
+        execute(endpoint, newPutRequest(url, body), true, x -> null);
     }
 
-    private <T> T post(String path, Object body, Class<T> responseType) throws IOException {
+    private Request newGetRequest(HttpUrl url, List<QueryParameter> queryParameters) {
+
+        HttpUrl.Builder httpUrlBuilder = url.newBuilder();
+
+        for (QueryParameter queryParameter : queryParameters) {
+            httpUrlBuilder.addQueryParameter(queryParameter.getName(), queryParameter.getValue());
+        }
 
-        HttpUrl url = HttpUrl.get(redmineBaseUrl)
-                .resolve(path)
-                .newBuilder()
+        return newRequestBuilder(httpUrlBuilder.build())
                 .build();
+    }
 
-        RequestBody requestBody = RequestBody.create(
-                MediaType.get("application/json; charset=utf-8"),
-                objectMapper.writeValueAsString(body));
+    private Request newPostRequest(HttpUrl url, Object body) {
+        return newRequestBuilder(url)
+                .post(new JsonRequestBody(body))
+                .build();
+    }
 
-        Request request = newRequestBuilder(url)
-                .post(requestBody)
+    private Request newPutRequest(HttpUrl url, Object body) {
+        return newRequestBuilder(url)
+                .put(new JsonRequestBody(body))
                 .build();
+    }
+
+    private <T> T execute(String endpoint, Request request, boolean idempotent, ResponseReader<T> responseReader)
+            throws IOException {
+
+        RetryPolicy policy = getEffectiveRetryPolicy();
+        policy.onRequest();
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                return executeOnce(endpoint, request, responseReader);
+            } catch (IOException e) {
+
+                long backoffMillis = policy.nextBackoffMillis(attempt, e, idempotent);
+                if (backoffMillis < 0) {
+                    throw e;
+                }
+
+                if (metrics != null) {
+                    metrics.increment("retries");
+                }
+
+                // 同時実行数を自動調整している場合、過負荷時の待機はlimiter側で行われる
+                boolean waitedByLimiter = limiter != null
+                        && e instanceof RedmineApiException && ((RedmineApiException) e).isOverloaded();
+
+                if (!waitedByLimiter) {
+                    log.warn("Failed to call Redmine API, retry after {} ms. ({})", backoffMillis, e.getMessage());
+                    sleep(backoffMillis);
+                }
+            }
+        }
+    }
+
+    private <T> T executeOnce(String endpoint, Request request, ResponseReader<T> responseReader)
+            throws IOException {
+
+        if (limiter != null) {
+            limiter.acquire();
+        }
+
+        long startNanos = System.nanoTime();
+        boolean released = limiter == null;
+        int status = 0;
 
-        Response response = httpClient.newCall(request).execute();
+        try (Response response = httpClient.newCall(request).execute()) {
 
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to call Redmine API. " + response);
+            status = response.code();
+
+            if (!response.isSuccessful()) {
+
+                RedmineApiException exception = newApiException(response);
+
+                if (!released && exception.isOverloaded()) {
+                    limiter.onOverload("HTTP " + response.code(), exception.getRetryAfterMillis());
+                    released = true;
+                }
+                throw exception;
+            }
+
+            // 文字列に変換せず、ストリームから直接読み込む
+            T result = responseReader.read(response.body().byteStream());
+
+            if (!released) {
+                limiter.onSuccess(System.nanoTime() - startNanos);
+                released = true;
+            }
+
+            return result;
+
+        } catch (SocketTimeoutException e) {
+            if (!released) {
+                limiter.onOverload("timeout", 0);
+                released = true;
+            }
+            throw e;
+        } finally {
+            if (!released) {
+                limiter.release();
+            }
+            recordRequest(endpoint, request, status, startNanos);
         }
+    }
+
+    private <T> CompletableFuture<T> executeAsync(String endpoint, Request request, boolean idempotent,
+            ResponseReader<T> responseReader) {
 
-        return objectMapper.readValue(
-                response.body().string(),
-                responseType);
+        RetryPolicy policy = getEffectiveRetryPolicy();
+        policy.onRequest();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executeAsync(endpoint, request, idempotent, responseReader, policy, 1, result);
+        return result;
     }
 
-    private void put(String path, Object body) throws IOException {
+    private <T> void executeAsync(String endpoint, Request request, boolean idempotent,
+            ResponseReader<T> responseReader, RetryPolicy policy, int attempt, CompletableFuture<T> result) {
+
+        long startNanos = System.nanoTime();
+
+        httpClient.newCall(request).enqueue(new Callback() {
+
+            @Override
+            public void onResponse(Call call, Response response) {
+
+                T value;
+                try {
+
+                    if (!response.isSuccessful()) {
+                        throw newApiException(response);
+                    }
+                    value = responseReader.read(response.body().byteStream());
+
+                } catch (IOException e) {
+                    recordRequest(endpoint, request, response.code(), startNanos);
+                    retryOrFail(e);
+                    return;
+                } catch (RuntimeException e) {
+                    recordRequest(endpoint, request, response.code(), startNanos);
+                    result.completeExceptionally(e);
+                    return;
+                } finally {
+                    response.close();
+                }
+
+                recordRequest(endpoint, request, response.code(), startNanos);
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                recordRequest(endpoint, request, 0, startNanos);
+                retryOrFail(e);
+            }
+
+            private void retryOrFail(IOException e) {
+
+                long backoffMillis = policy.nextBackoffMillis(attempt, e, idempotent);
+                if (backoffMillis < 0) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+
+                if (metrics != null) {
+                    metrics.increment("retries");
+                }
+
+                log.warn("Failed to call Redmine API, retry after {} ms. ({})", backoffMillis, e.getMessage());
+                delay(backoffMillis).thenRun(
+                        () -> executeAsync(endpoint, request, idempotent, responseReader, policy, attempt + 1, result));
+            }
+        });
+    }
 
-        HttpUrl url = HttpUrl.get(redmineBaseUrl)
-                .resolve(path)
-                .newBuilder()
-                .build();
+    private void createIssueAsync(Request request, CustomField markerField, int attempt,
+            CompletableFuture<Integer> result) {
+
+        executeAsync(CREATE_ENDPOINT, request, false, Client::readIssueId).whenComplete((issueId, error) -> {
+
+            if (error == null) {
+                result.complete(issueId);
+                return;
+            }
+
+            long backoffMillis = error instanceof IOException
+                    ? getEffectiveRetryPolicy().nextBackoffMillis(attempt, (IOException) error, true)
+                    : -1;
+            if (backoffMillis < 0) {
+                result.completeExceptionally(error);
+                return;
+            }
+
+            log.warn("Failed to create issue, retry after {} ms. ({})", backoffMillis, error.getMessage());
+
+            delay(backoffMillis)
+                    .thenCompose(x -> getIssuesAsync(Arrays.asList(ALL_STATUS_QUERY, markerField.getQueryParameter())))
+                    .whenComplete((createdIssues, searchError) -> {
+                        if (searchError != null) {
+                            result.completeExceptionally(searchError);
+                        } else if (!createdIssues.isEmpty()) {
+                            // 応答は受け取れなかったが作成はされていた
+                            result.complete(createdIssues.get(0).getId());
+                        } else {
+                            createIssueAsync(request, markerField, attempt + 1, result);
+                        }
+                    });
+        });
+    }
 
-        RequestBody requestBody = RequestBody.create(
-                MediaType.get("application/json; charset=utf-8"),
-                objectMapper.writeValueAsString(body));
+    private static CompletableFuture<Void> delay(long millis) {
 
-        Request request = newRequestBuilder(url)
-                .put(requestBody)
-                .build();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        RETRY_SCHEDULER.schedule(() -> future.complete(null), millis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private void recordRequest(String endpoint, Request request, int status, long startNanos) {
+
+        if (metrics != null) {
+            metrics.recordRequest(endpoint, request.url().toString(), status, System.nanoTime() - startNanos);
+            if (status < 200 || status >= 300) {
+                metrics.increment("errors");
+            }
+        }
+    }
+
+    private RetryPolicy getEffectiveRetryPolicy() {
+
+        if (retryPolicy != null) {
+            return retryPolicy;
+        }
+        return limiter != null ? RetryPolicy.OVERLOAD_ONLY : RetryPolicy.NONE;
+    }
+
+    private static RedmineApiException newApiException(Response response) {
+        return new RedmineApiException(
+                "Failed to call Redmine API. " + response,
+                response.code(),
+                isOverloaded(response) ? retryAfterMillis(response) : 0);
+    }
+
+    private static boolean isOverloaded(Response response) {
+        return response.code() == 429 || response.code() == 503;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static Map<String, Object> withCustomField(Map<String, Object> targetFields, CustomField customField) {
+
+        if (targetFields instanceof IssueFields) {
+            return new IssueFields((IssueFields) targetFields).addCustomField(customField);
+        }
+
+        Map<String, Object> fields = new LinkedHashMap<>(targetFields);
+
+        @SuppressWarnings("unchecked")
+        List<CustomField> customFields = (List<CustomField>) fields.get("custom_fields");
+        List<CustomField> newCustomFields = customFields == null ? new ArrayList<>() : new ArrayList<>(customFields);
+        newCustomFields.add(customField);
+        fields.put("custom_fields", newCustomFields);
 
-        Response response = httpClient.newCall(request).execute();
+        return fields;
+    }
+
+    private static long retryAfterMillis(Response response) {
 
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to call Redmine API. " + response);
+        String retryAfter = response.header("Retry-After");
+        if (StringUtils.isEmpty(retryAfter)) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+
+        // 秒数もしくはHTTP日付
+        if (StringUtils.isNumeric(retryAfter)) {
+            return Long.parseLong(retryAfter) * 1000;
+        }
+
+        try {
+            ZonedDateTime retryAt = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt).toMillis());
+        } catch (DateTimeParseException e) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
         }
     }
 
@@ -126,9 +567,89 @@ public class Client {
         if (StringUtils.isNotEmpty(apiKey)) {
             requestBuilder.addHeader("X-Redmine-API-Key", apiKey);
         } else {
-            requestBuilder.addHeader("Authorization", basicAuth.toAuthorizationValue());
+            requestBuilder.addHeader("Authorization", getAuthorizationValue());
         }
 
         return requestBuilder;
     }
+
+    private static int readIssueId(InputStream responseBody) throws IOException {
+
+        // レスポンス全体をMapにせず、issue.idのみを読み取る
+        try (JsonParser parser = JSON_FACTORY.createParser(responseBody)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected response from Redmine API.");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                String name = parser.getCurrentName();
+                parser.nextToken();
+
+                if (!name.equals("issue")) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                    String issueFieldName = parser.getCurrentName();
+                    parser.nextToken();
+
+                    if (issueFieldName.equals("id")) {
+                        return parser.getIntValue();
+                    }
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        throw new IOException("Issue ID was not found in the response from Redmine API.");
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+
+        T read(InputStream responseBody) throws IOException;
+    }
+
+    private class JsonRequestBody extends RequestBody {
+
+        private final Object body;
+
+        private Buffer serialized;
+
+        JsonRequestBody(Object body) {
+            this.body = body;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON_MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            // Content-Lengthを付与するため(chunkedだとプロキシによっては受け付けない)、
+            // 文字列を経由せずにバイト列へ直接シリアライズしておく
+            return serialize().size();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            // リトライ時に再送できるよう複製を書き込む
+            sink.write(serialize().clone(), serialized.size());
+        }
+
+        private Buffer serialize() throws IOException {
+
+            if (serialized == null) {
+                Buffer buffer = new Buffer();
+                objectMapper.writeValue(buffer.outputStream(), body);
+                serialized = buffer;
+            }
+            return serialized;
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.enjoyxstudy.redmine.issue.loader.client;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import com.enjoyxstudy.redmine.issue.loader.input.AdaptiveConcurrencySetting;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class ConcurrencyLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double latencyTolerance;
+
+    private final double backoffRatio;
+
+    private double limit;
+
+    private int inFlight;
+
+    private long minRttNanos = Long.MAX_VALUE;
+
+    private long lastBackoffNanos;
+
+    private long pausedUntilNanos;
+
+    private int maxReportedLimit;
+
+    public ConcurrencyLimiter(AdaptiveConcurrencySetting setting) {
+
+        this.minLimit = Math.max(1, setting.getMinLimit());
+        this.maxLimit = Math.max(minLimit, setting.getMaxLimit());
+        this.latencyTolerance = setting.getLatencyTolerance();
+        this.backoffRatio = setting.getBackoffRatio();
+        this.limit = Math.min(maxLimit, Math.max(minLimit, setting.getInitialLimit()));
+        this.maxReportedLimit = (int) limit;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized void acquire() throws InterruptedIOException {
+
+        try {
+            while (true) {
+                long pausedNanos = pausedUntilNanos == 0 ? 0 : pausedUntilNanos - System.nanoTime();
+                if (pausedNanos > 0) {
+                    // Retry-Afterで指定された期間は新たなリクエストを送らない
+                    TimeUnit.NANOSECONDS.timedWait(this, pausedNanos);
+                } else if (inFlight >= (int) limit) {
+                    wait();
+                } else {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        inFlight++;
+    }
+
+    public synchronized void onSuccess(long rttNanos) {
+
+        release();
+
+        // 最小応答時間は徐々に緩めて、サーバの状態変化に追従させる
+        minRttNanos = minRttNanos == Long.MAX_VALUE
+                ? rttNanos
+                : Math.min(rttNanos, minRttNanos + (minRttNanos >> 10));
+
+        if (rttNanos <= minRttNanos * latencyTolerance) {
+            // 応答時間が安定している間は、上限まで使っている場合のみ1RTTにつき1ずつ増やす
+            if (inFlight + 1 >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        } else {
+            // 応答時間が伸びている場合は緩やかに減らす
+            limit = Math.max(minLimit, limit - 0.5 / limit);
+        }
+
+        if ((int) limit > maxReportedLimit) {
+            maxReportedLimit = (int) limit;
+            log.info("Concurrency limit increased to {}.", maxReportedLimit);
+        }
+    }
+
+    public synchronized void onOverload(String reason, long retryAfterMillis) {
+
+        release();
+
+        long now = System.nanoTime();
+
+        if (retryAfterMillis > 0) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+        }
+
+        // 同時に返ってきたエラーで何度も減らさないよう、減らすのは1RTTに1回まで
+        long rtt = minRttNanos == Long.MAX_VALUE ? 0 : minRttNanos;
+        if (lastBackoffNanos != 0 && now - lastBackoffNanos < rtt) {
+            return;
+        }
+        lastBackoffNanos = now;
+
+        limit = Math.max(minLimit, limit * backoffRatio);
+        maxReportedLimit = (int) limit;
+        log.warn("Concurrency limit decreased to {} ({}, retry after {} ms).", (int) limit, reason, retryAfterMillis);
+    }
+
+    public synchronized void release() {
+
+        if (inFlight > 0) {
+            inFlight--;
+        }
+        notifyAll();
+    }
+}
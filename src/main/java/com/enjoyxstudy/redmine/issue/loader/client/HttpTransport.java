@@ -0,0 +1,65 @@
+package com.enjoyxstudy.redmine.issue.loader.client;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.enjoyxstudy.redmine.issue.loader.input.TransportSetting;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class HttpTransport {
+
+    private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+
+    private static final int DEFAULT_KEEP_ALIVE_SECONDS = 300;
+
+    public static OkHttpClient newHttpClient(TransportSetting setting, int parallelism) {
+
+        if (setting == null) {
+            setting = new TransportSetting();
+        }
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+
+        // 並列で処理する場合、プールに残せる接続数が並列数より少ないと接続し直しが発生するので並列数以上とする
+        int maxIdleConnections = setting.getMaxIdleConnections() != null
+                ? setting.getMaxIdleConnections()
+                : Math.max(DEFAULT_MAX_IDLE_CONNECTIONS, parallelism);
+        int keepAliveSeconds = setting.getKeepAliveSeconds() != null
+                ? setting.getKeepAliveSeconds()
+                : DEFAULT_KEEP_ALIVE_SECONDS;
+        builder.connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS));
+
+        Dispatcher dispatcher = new Dispatcher();
+        if (setting.getMaxRequests() != null) {
+            dispatcher.setMaxRequests(setting.getMaxRequests());
+        }
+        dispatcher.setMaxRequestsPerHost(setting.getMaxRequestsPerHost() != null
+                ? setting.getMaxRequestsPerHost()
+                : Math.max(dispatcher.getMaxRequestsPerHost(), parallelism));
+        builder.dispatcher(dispatcher);
+
+        if (setting.getConnectTimeoutSeconds() != null) {
+            builder.connectTimeout(setting.getConnectTimeoutSeconds(), TimeUnit.SECONDS);
+        }
+        if (setting.getReadTimeoutSeconds() != null) {
+            builder.readTimeout(setting.getReadTimeoutSeconds(), TimeUnit.SECONDS);
+        }
+        if (setting.getWriteTimeoutSeconds() != null) {
+            builder.writeTimeout(setting.getWriteTimeoutSeconds(), TimeUnit.SECONDS);
+        }
+
+        if (!setting.isHttp2()) {
+            // HTTP/2を使わない場合はHTTP/1.1のみに限定(デフォルトはHTTPSでHTTP/2が利用可能ならHTTP/2)
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+
+        return builder.build();
+    }
+}
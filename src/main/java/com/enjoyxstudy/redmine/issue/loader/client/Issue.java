@@ -1,8 +1,12 @@
 package com.enjoyxstudy.redmine.issue.loader.client;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import lombok.AllArgsConstructor;
@@ -22,4 +26,20 @@ public class Issue {
 
     @Singular
     private List<CustomField> customFields;
+
+    // 上記以外の項目(差分更新時の比較に使用)
+    private Map<String, Object> attributes;
+
+    public Map<String, Object> getAttributes() {
+        return attributes == null ? Collections.emptyMap() : attributes;
+    }
+
+    @JsonAnySetter
+    public void setAttribute(String name, Object value) {
+
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
 }
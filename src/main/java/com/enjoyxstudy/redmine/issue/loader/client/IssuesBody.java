@@ -11,4 +11,10 @@ import lombok.Data;
 public class IssuesBody {
 
     private List<Issue> issues;
+
+    private int totalCount;
+
+    private int offset;
+
+    private int limit;
 }
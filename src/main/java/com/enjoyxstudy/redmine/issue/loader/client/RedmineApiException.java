@@ -0,0 +1,26 @@
+package com.enjoyxstudy.redmine.issue.loader.client;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+@Getter
+public class RedmineApiException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    private final long retryAfterMillis;
+
+    public RedmineApiException(String message, int statusCode, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public boolean isOverloaded() {
+        // サーバ側で処理されずに返されるので、どのメソッドでも再送可能
+        return statusCode == 429 || statusCode == 503;
+    }
+}
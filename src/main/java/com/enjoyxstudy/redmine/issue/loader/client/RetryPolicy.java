@@ -0,0 +1,96 @@
+package com.enjoyxstudy.redmine.issue.loader.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.enjoyxstudy.redmine.issue.loader.input.RetrySetting;
+
+public class RetryPolicy {
+
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 0, 0);
+
+    // 再試行の設定が無い場合でも、同時実行数を自動調整する場合は過負荷時のみ再送する
+    public static final RetryPolicy OVERLOAD_ONLY = new RetryPolicy(6, 0, 0, 0, Integer.MAX_VALUE) {
+        @Override
+        boolean isRetryable(IOException e, boolean idempotent) {
+            return e instanceof RedmineApiException && ((RedmineApiException) e).isOverloaded();
+        }
+    };
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final double budgetRatio;
+
+    private final double maxBudget;
+
+    private double budget;
+
+    public RetryPolicy(RetrySetting setting) {
+        this(setting.getMaxAttempts(), setting.getInitialBackoffMillis(), setting.getMaxBackoffMillis(),
+                setting.getBudgetRatio(), setting.getInitialBudget());
+    }
+
+    private RetryPolicy(
+            int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double budgetRatio, int initialBudget) {
+
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.budgetRatio = budgetRatio;
+        this.maxBudget = initialBudget;
+        this.budget = initialBudget;
+    }
+
+    public synchronized void onRequest() {
+        // リクエストごとに少しずつ予算を回復
+        budget = Math.min(maxBudget, budget + budgetRatio);
+    }
+
+    // 再試行までの待機時間(ミリ秒)を返す(再試行しない場合は-1)
+    public long nextBackoffMillis(int attempt, IOException e, boolean idempotent) {
+
+        if (attempt >= maxAttempts || !isRetryable(e, idempotent) || !consumeBudget()) {
+            return -1;
+        }
+
+        // 指数バックオフ(full jitter)
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+        long jittered = backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+
+        if (e instanceof RedmineApiException) {
+            return Math.max(jittered, ((RedmineApiException) e).getRetryAfterMillis());
+        }
+        return jittered;
+    }
+
+    boolean isRetryable(IOException e, boolean idempotent) {
+
+        if (e instanceof RedmineApiException) {
+            RedmineApiException apiException = (RedmineApiException) e;
+            return apiException.isOverloaded() || (idempotent && apiException.getStatusCode() >= 500);
+        }
+
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            // 中断された場合は再試行しない
+            return false;
+        }
+
+        // 通信エラーはサーバ側で処理されたか分からないので、冪等なリクエストのみ
+        return idempotent;
+    }
+
+    private synchronized boolean consumeBudget() {
+
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+}
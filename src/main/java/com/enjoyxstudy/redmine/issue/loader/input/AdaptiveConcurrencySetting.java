@@ -0,0 +1,19 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Data;
+
+@Data
+public class AdaptiveConcurrencySetting {
+
+    private int initialLimit = 4;
+
+    private int minLimit = 1;
+
+    private int maxLimit = 64;
+
+    // 最小の応答時間に対して、何倍までを安定しているとみなすか
+    private double latencyTolerance = 2.0;
+
+    // 429/503/タイムアウト時に同時実行数へ掛ける比率
+    private double backoffRatio = 0.5;
+}
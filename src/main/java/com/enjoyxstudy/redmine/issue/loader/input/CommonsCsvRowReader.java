@@ -0,0 +1,80 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+
+class CommonsCsvRowReader implements CsvRowReader {
+
+    private final CountingInputStream countingInputStream;
+
+    private final CSVParser csvParser;
+
+    private final Iterator<CSVRecord> csvIterator;
+
+    private CSVRecord current;
+
+    CommonsCsvRowReader(Path csvPath, Charset charset) throws IOException {
+
+        this.countingInputStream = new CountingInputStream(Files.newInputStream(csvPath));
+
+        Reader csvReader = new InputStreamReader(
+                // UTF-8のBOMを考慮
+                new BOMInputStream(countingInputStream), charset);
+
+        this.csvParser = CSVFormat.EXCEL.withHeader().parse(csvReader);
+        this.csvIterator = csvParser.iterator();
+    }
+
+    @Override
+    public Map<String, Integer> getHeaderMap() {
+        return csvParser.getHeaderMap();
+    }
+
+    @Override
+    public boolean next() {
+
+        if (!csvIterator.hasNext()) {
+            return false;
+        }
+
+        current = csvIterator.next();
+        return true;
+    }
+
+    @Override
+    public long getRecordNumber() {
+        return current.getRecordNumber();
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    @Override
+    public String get(int index) {
+        return current.get(index);
+    }
+
+    @Override
+    public long getBytePosition() {
+        return countingInputStream.getByteCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        csvParser.close();
+    }
+}
@@ -34,6 +34,46 @@ public class Config {
     @NonNull
     private List<FieldSetting> fields;
 
+    private CsvReaderType csvReader = CsvReaderType.COMMONS_CSV;
+
+    private boolean parallelParse;
+
+    private int parallelism = 1;
+
+    private boolean virtualThreads;
+
+    private TransportSetting transport;
+
+    private AdaptiveConcurrencySetting adaptiveConcurrency;
+
+    private RetrySetting retry;
+
+    private boolean journal;
+
+    private boolean prefetch;
+
+    private List<Integer> prefetchProjectIds;
+
+    private boolean deltaUpdate;
+
+    private MetricsSetting metrics;
+
+    // 0の場合は進捗を表示しない
+    private int progressIntervalSeconds;
+
+    private boolean rowOutput = true;
+
+    private boolean validateFirst;
+
+    // 前回から内容が変わっていない行を送信せずに飛ばす(更新時のみ)
+    private FingerprintSetting fingerprint;
+
+    // autoResolveで取得した変換表を保存し、有効期限内は再取得しない
+    private NameCacheSetting nameCache;
+
+    // 親チケットの列で、同じCSV内の行を参照する(新規作成時のみ)
+    private ParentReferenceSetting parentReference;
+
     public static Config of(Path configPath) throws JsonParseException, JsonMappingException, IOException {
         return objectMapper.readValue(configPath.toFile(), Config.class);
     }
@@ -0,0 +1,8 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+public enum CsvReaderType {
+
+    COMMONS_CSV,
+
+    MAPPED
+}
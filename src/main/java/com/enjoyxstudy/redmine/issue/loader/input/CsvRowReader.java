@@ -0,0 +1,25 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+interface CsvRowReader extends Closeable {
+
+    Map<String, Integer> getHeaderMap();
+
+    // 値を取り出す列を指定(指定されなかった列は読み飛ばしてよい)
+    default void select(boolean[] selectedColumns) {
+    }
+
+    boolean next() throws IOException;
+
+    long getRecordNumber();
+
+    int size();
+
+    String get(int index);
+
+    // ファイル先頭からの読み込み済みバイト数(進捗の見積もり用で、先読み分を含んでもよい)
+    long getBytePosition();
+}
@@ -0,0 +1,56 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class DaemonSetting {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 監視するディレクトリ(CSVファイルを置くと登録される)
+    private String inbox = "inbox";
+
+    // 処理が終わったファイルの移動先
+    private String done = "done";
+
+    private String failed = "failed";
+
+    // CSVファイルと同じ名前の設定ファイルが無い場合に使用する設定ファイル
+    private String config;
+
+    // 全ファイル合計での同時実行数
+    private int parallelism = 4;
+
+    // 同時に処理するファイル数
+    private int maxConcurrentJobs = 1;
+
+    private TransportSetting transport;
+
+    // ジョブを受け付けるHTTPのポート(ローカルからのみ、未指定の場合は受け付けない、0の場合は空いているポート)
+    private Integer httpPort;
+
+    // パスの基準となるディレクトリ
+    @JsonIgnore
+    private Path baseDirectory;
+
+    public static DaemonSetting of(Path settingPath) throws IOException {
+
+        DaemonSetting setting = objectMapper.readValue(settingPath.toFile(), DaemonSetting.class);
+        setting.setBaseDirectory(settingPath.toAbsolutePath().getParent());
+
+        return setting;
+    }
+
+    public Path resolve(String path) {
+        return baseDirectory == null ? Paths.get(path) : baseDirectory.resolve(path);
+    }
+}
@@ -0,0 +1,125 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import org.apache.commons.lang3.StringUtils;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class DateNormalizer {
+
+    // 同じ日付が何度も出てくることが多いので、直近の変換結果を保持(ハッシュ値で位置を決める簡易なもの)
+    private static final int MEMO_SIZE = 256;
+
+    private static final Entry[] MEMO = new Entry[MEMO_SIZE];
+
+    private static final int[] DAYS_OF_MONTH = { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    static String normalize(String value) {
+
+        if (StringUtils.isEmpty(value)) {
+            return value;
+        }
+
+        int slot = value.hashCode() & (MEMO_SIZE - 1);
+        Entry entry = MEMO[slot];
+        if (entry != null && entry.value.equals(value)) {
+            return entry.normalized;
+        }
+
+        String normalized = parse(value);
+        if (normalized == null) {
+            // 対応するフォーマットに一致しなかった場合
+            throw new IllegalArgumentException(String.format("%s is invalid date format.", value));
+        }
+
+        // Entryは不変なので、他スレッドと競合しても問題ない
+        MEMO[slot] = new Entry(value, normalized);
+
+        return normalized;
+    }
+
+    // yyyy/M/d もしくは yyyy-M-d を解析し、yyyy-MM-dd にする(一致しない場合はnull)
+    private static String parse(String value) {
+
+        int length = value.length();
+        if (length < 8 || length > 10) {
+            return null;
+        }
+
+        int year = digits(value, 0, 4);
+        if (year < 0) {
+            return null;
+        }
+
+        char separator = value.charAt(4);
+        if (separator != '/' && separator != '-') {
+            return null;
+        }
+
+        int secondSeparatorIndex = value.indexOf(separator, 5);
+        if (secondSeparatorIndex < 0) {
+            return null;
+        }
+
+        int month = digits(value, 5, secondSeparatorIndex);
+        int day = digits(value, secondSeparatorIndex + 1, length);
+        if (month < 1 || month > 12 || day < 1 || day > daysOfMonth(year, month)) {
+            return null;
+        }
+
+        char[] normalized = new char[10];
+        normalized[0] = (char) ('0' + year / 1000);
+        normalized[1] = (char) ('0' + year / 100 % 10);
+        normalized[2] = (char) ('0' + year / 10 % 10);
+        normalized[3] = (char) ('0' + year % 10);
+        normalized[4] = '-';
+        normalized[5] = (char) ('0' + month / 10);
+        normalized[6] = (char) ('0' + month % 10);
+        normalized[7] = '-';
+        normalized[8] = (char) ('0' + day / 10);
+        normalized[9] = (char) ('0' + day % 10);
+
+        return new String(normalized);
+    }
+
+    // 1～2桁(年は4桁)の数字を読み取る(数字以外が含まれる場合は-1)
+    private static int digits(String value, int begin, int end) {
+
+        int length = end - begin;
+        if (length < 1 || (begin == 0 ? length != 4 : length > 2)) {
+            return -1;
+        }
+
+        int number = 0;
+        for (int i = begin; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+
+        return number;
+    }
+
+    private static int daysOfMonth(int year, int month) {
+
+        if (month == 2 && !(year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))) {
+            return 28;
+        }
+        return DAYS_OF_MONTH[month - 1];
+    }
+
+    private static class Entry {
+
+        private final String value;
+
+        private final String normalized;
+
+        Entry(String value, String normalized) {
+            this.value = value;
+            this.normalized = normalized;
+        }
+    }
+}
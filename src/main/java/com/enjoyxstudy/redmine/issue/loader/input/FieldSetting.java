@@ -16,4 +16,7 @@ public class FieldSetting {
     private boolean isPrimaryKey;
     
     private Map<String, String> mappings;
+
+    // 名称→IDの変換表をRedmineから取得する(mappingsの指定がある場合はそちらを優先)
+    private boolean autoResolve;
 }
@@ -1,11 +1,5 @@
 package com.enjoyxstudy.redmine.issue.loader.input;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
@@ -36,9 +30,9 @@ public enum FieldType {
 
     DESCRIPTION("description"),
 
-    START_DATE("start_date", FieldType::normalizeDate),
+    START_DATE("start_date", DateNormalizer::normalize),
 
-    DUE_DATE("due_date", FieldType::normalizeDate),
+    DUE_DATE("due_date", DateNormalizer::normalize),
 
     DONE_RATIO("done_ratio"),
 
@@ -66,37 +60,4 @@ public enum FieldType {
     public String normalize(String value) {
         return normalize.apply(value);
     }
-
-    private static final List<DateTimeFormatter> BEFORE_NORMALIZE_DATE_FORMATTERS = Collections.unmodifiableList(
-            Arrays.asList(
-                    DateTimeFormatter.ofPattern("yyyy/M/d"),
-                    DateTimeFormatter.ofPattern("yyyy-M-d")));
-
-    private static final DateTimeFormatter NORMALIZED_DATE_FORMATTER = DateTimeFormatter
-            .ofPattern("yyyy-MM-dd");
-
-    private static String normalizeDate(String value) {
-
-        if (StringUtils.isEmpty(value)) {
-            return value;
-        }
-
-        LocalDate date = null;
-        for (DateTimeFormatter dateFormatter : BEFORE_NORMALIZE_DATE_FORMATTERS) {
-            try {
-                date = LocalDate.parse(value, dateFormatter);
-                // 変換できたら抜ける
-                break;
-            } catch (DateTimeParseException e) {
-                // 変換できなかったら次へ
-            }
-        }
-
-        if (date == null) {
-            // 全てのフォーマットに一致しなかった場合
-            throw new IllegalArgumentException(String.format("%s is invalid date format.", value));
-        }
-
-        return NORMALIZED_DATE_FORMATTER.format(date);
-    }
 }
@@ -0,0 +1,90 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class FieldValidator {
+
+    // 変換後の値をRedmineが受け付けるか確認し、問題がある場合はメッセージを返却
+    static String check(FieldType fieldType, String value) {
+
+        if (value.isEmpty()) {
+            return null;
+        }
+
+        switch (fieldType) {
+            case ISSUE_ID:
+            case PROJECT_ID:
+            case TRACKER_ID:
+            case STATUS_ID:
+            case PRIORITY_ID:
+            case ASSIGNED_TO_ID:
+            case CATEGORY_ID:
+            case FIXED_VERSION_ID:
+            case PARENT_ISSUE_ID:
+                return parseInt(value) > 0 ? null : String.format("%s is not a valid ID.", value);
+
+            case DONE_RATIO:
+                int doneRatio = parseInt(value);
+                return doneRatio >= 0 && doneRatio <= 100
+                        ? null
+                        : String.format("%s is not a number between 0 and 100.", value);
+
+            case ESTIMATED_HOURS:
+                return isHours(value) ? null : String.format("%s is not a valid number of hours.", value);
+
+            case IS_PRIVATE:
+                return value.equals("true") || value.equals("false") || value.equals("1") || value.equals("0")
+                        ? null
+                        : String.format("%s is not a boolean (true or false).", value);
+
+            default:
+                return null;
+        }
+    }
+
+    // 0以上の整数でない場合は-1(例外は使わない)
+    private static int parseInt(String value) {
+
+        if (value.length() > 9) {
+            return -1;
+        }
+
+        int result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+
+        return result;
+    }
+
+    private static boolean isHours(String value) {
+
+        // ほとんどは小数なので、正規表現を使わずに確認
+        return isDecimal(value) || Hours.toDecimal(value) != null;
+    }
+
+    private static boolean isDecimal(String value) {
+
+        boolean digitFound = false;
+        boolean pointFound = false;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitFound = true;
+            } else if (c == '.' && !pointFound) {
+                pointFound = true;
+            } else {
+                return false;
+            }
+        }
+
+        return digitFound;
+    }
+}
@@ -0,0 +1,12 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Data;
+
+@Data
+public class FingerprintSetting {
+
+    private String file;
+
+    // 記録できる件数(ファイル作成時のみ使用し、既存のファイルはその大きさのまま)
+    private int capacity = 1000000;
+}
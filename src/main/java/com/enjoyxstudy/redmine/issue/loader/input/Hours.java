@@ -0,0 +1,61 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+// Redmineが時間として受け付ける形式(1,5、1.5h、1:30、1h30、2h、30m、2 hours 30 min など)を、Redmineと同じく小数に換算
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class Hours {
+
+    private static final Pattern DECIMAL_PATTERN = Pattern.compile("(\\d+([.,]\\d+)?)h?");
+
+    // ".5"、"1."のような小数の表記
+    private static final Pattern POINT_PATTERN = Pattern.compile("\\d+\\.|\\.\\d+");
+
+    private static final Pattern CLOCK_PATTERN = Pattern.compile("(\\d+):(\\d+)");
+
+    private static final Pattern UNIT_PATTERN = Pattern.compile(
+            "(?=\\d)(?:(\\d+)\\s*(?:h|hours?))?\\s*(?:(\\d+)\\s*(?:m|min)?)?",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final BigDecimal MINUTES_PER_HOUR = BigDecimal.valueOf(60);
+
+    // 時間として扱えない場合はnull
+    public static BigDecimal toDecimal(String value) {
+
+        String text = value.trim();
+
+        Matcher matcher = DECIMAL_PATTERN.matcher(text);
+        if (matcher.matches()) {
+            return new BigDecimal(matcher.group(1).replace(',', '.'));
+        }
+
+        if (POINT_PATTERN.matcher(text).matches()) {
+            return new BigDecimal(text);
+        }
+
+        matcher = CLOCK_PATTERN.matcher(text);
+        if (!matcher.matches()) {
+            matcher = UNIT_PATTERN.matcher(text);
+        }
+        if (matcher.matches()) {
+            return hours(matcher.group(1), matcher.group(2));
+        }
+
+        return null;
+    }
+
+    private static BigDecimal hours(String hours, String minutes) {
+
+        BigDecimal result = hours == null ? BigDecimal.ZERO : new BigDecimal(hours);
+        if (minutes != null) {
+            result = result.add(new BigDecimal(minutes).divide(MINUTES_PER_HOUR, MathContext.DECIMAL64));
+        }
+        return result;
+    }
+}
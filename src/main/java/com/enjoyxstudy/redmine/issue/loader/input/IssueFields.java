@@ -0,0 +1,229 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+// 登録、更新するフィールド
+// 行ごとにMapやListを作らないよう、フィールドの種類ごとの固定の枠とカスタムフィールドの配列で保持する
+// 従来通りMapとしても扱えるが、JSONへはIssueFieldsSerializerで直接書き出す
+@JsonSerialize(using = IssueFieldsSerializer.class)
+public class IssueFields extends AbstractMap<String, Object> {
+
+    public static final String CUSTOM_FIELDS = "custom_fields";
+
+    private static final FieldType[] FIELD_TYPES = FieldType.values();
+
+    private static final CustomField[] EMPTY_CUSTOM_FIELDS = new CustomField[0];
+
+    // フィールド名→種類(カスタムフィールドはCUSTOM_FIELDとして扱う)
+    private static final Map<String, FieldType> FIELD_TYPES_BY_NAME;
+    static {
+        Map<String, FieldType> fieldTypesByName = new HashMap<>();
+        for (FieldType fieldType : FIELD_TYPES) {
+            fieldTypesByName.put(fieldName(fieldType), fieldType);
+        }
+        FIELD_TYPES_BY_NAME = Collections.unmodifiableMap(fieldTypesByName);
+    }
+
+    // 種類の順序→値
+    private final String[] values = new String[FIELD_TYPES.length];
+
+    // 追加した順の種類の順序(JSONもこの順に出力し、CUSTOM_FIELDはカスタムフィールドの位置を表す)
+    private final byte[] order = new byte[FIELD_TYPES.length];
+
+    private int fieldCount;
+
+    // 追加済みの種類(種類の順序のビット)
+    private int presentTypes;
+
+    private CustomField[] customFields = EMPTY_CUSTOM_FIELDS;
+
+    private int customFieldCount;
+
+    private final int customFieldCapacity;
+
+    public IssueFields() {
+        this(10);
+    }
+
+    public IssueFields(int customFieldCapacity) {
+        this.customFieldCapacity = Math.max(1, customFieldCapacity);
+    }
+
+    public IssueFields(IssueFields source) {
+
+        System.arraycopy(source.values, 0, values, 0, values.length);
+        System.arraycopy(source.order, 0, order, 0, order.length);
+        fieldCount = source.fieldCount;
+        presentTypes = source.presentTypes;
+        customFields = Arrays.copyOf(source.customFields, source.customFieldCount);
+        customFieldCount = source.customFieldCount;
+        customFieldCapacity = source.customFieldCapacity;
+    }
+
+    public static String fieldName(FieldType fieldType) {
+        return fieldType == FieldType.CUSTOM_FIELD ? CUSTOM_FIELDS : fieldType.getFieldName();
+    }
+
+    public String get(FieldType fieldType) {
+        return values[fieldType.ordinal()];
+    }
+
+    public IssueFields set(FieldType fieldType, String value) {
+
+        if (fieldType == FieldType.CUSTOM_FIELD) {
+            throw new IllegalArgumentException("Use addCustomField for custom fields.");
+        }
+
+        markPresent(fieldType);
+        values[fieldType.ordinal()] = value;
+        return this;
+    }
+
+    public IssueFields addCustomField(CustomField customField) {
+
+        markPresent(FieldType.CUSTOM_FIELD);
+
+        if (customFieldCount == customFields.length) {
+            customFields = Arrays.copyOf(customFields, Math.max(customFieldCapacity, customFieldCount * 2));
+        }
+        customFields[customFieldCount++] = customField;
+        return this;
+    }
+
+    public int getCustomFieldCount() {
+        return customFieldCount;
+    }
+
+    public CustomField getCustomField(int index) {
+        return customFields[index];
+    }
+
+    // 追加した順でindex番目の種類
+    public FieldType getFieldType(int index) {
+        return FIELD_TYPES[order[index]];
+    }
+
+    @Override
+    public int size() {
+        return fieldCount;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+
+        FieldType fieldType = FIELD_TYPES_BY_NAME.get(key);
+        return fieldType != null && isPresent(fieldType);
+    }
+
+    @Override
+    public Object get(Object key) {
+
+        FieldType fieldType = FIELD_TYPES_BY_NAME.get(key);
+        if (fieldType == null || !isPresent(fieldType)) {
+            return null;
+        }
+
+        return value(fieldType);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+
+        FieldType fieldType = FIELD_TYPES_BY_NAME.get(key);
+        if (fieldType == null) {
+            throw new IllegalArgumentException(String.format("Field %s is not supported.", key));
+        }
+
+        Object oldValue = get(key);
+
+        if (fieldType == FieldType.CUSTOM_FIELD) {
+            if (oldValue != null) {
+                // 同じ配列を上書きするので、以前の値は参照ではなくコピーを返却
+                oldValue = new ArrayList<>((List<?>) oldValue);
+            }
+            markPresent(fieldType);
+            customFieldCount = 0;
+            for (Object customField : (Collection<?>) value) {
+                addCustomField((CustomField) customField);
+            }
+        } else {
+            set(fieldType, value == null ? null : value.toString());
+        }
+
+        return oldValue;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+
+        return new AbstractSet<Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+
+                return new Iterator<Entry<String, Object>>() {
+
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < fieldCount;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        FieldType fieldType = getFieldType(index++);
+                        return new SimpleImmutableEntry<>(fieldName(fieldType), value(fieldType));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return fieldCount;
+            }
+        };
+    }
+
+    private Object value(FieldType fieldType) {
+
+        if (fieldType == FieldType.CUSTOM_FIELD) {
+            // Mapとして参照された場合のみListとして見せる(配列をそのまま参照するのでコピーはしない)
+            List<CustomField> customFieldList = Arrays.asList(customFields).subList(0, customFieldCount);
+            return Collections.unmodifiableList(customFieldList);
+        }
+
+        return values[fieldType.ordinal()];
+    }
+
+    private boolean isPresent(FieldType fieldType) {
+        return (presentTypes & (1 << fieldType.ordinal())) != 0;
+    }
+
+    private void markPresent(FieldType fieldType) {
+
+        if (!isPresent(fieldType)) {
+            // 同じ種類を再度設定した場合は、LinkedHashMapと同じく最初の位置のまま
+            presentTypes |= 1 << fieldType.ordinal();
+            order[fieldCount++] = (byte) fieldType.ordinal();
+        }
+    }
+}
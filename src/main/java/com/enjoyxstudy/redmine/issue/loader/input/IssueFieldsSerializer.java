@@ -0,0 +1,72 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+// IssueFieldsをJSONへ直接書き出す(Mapとしての走査や、CustomFieldのリフレクションによる出力を行わない)
+public class IssueFieldsSerializer extends StdSerializer<IssueFields> {
+
+    private static final long serialVersionUID = 1L;
+
+    // フィールド名は事前にエンコードしておき、行ごとにエスケープやエンコードをしない
+    private static final SerializedString[] FIELD_NAMES;
+    static {
+        FieldType[] fieldTypes = FieldType.values();
+        FIELD_NAMES = new SerializedString[fieldTypes.length];
+        for (FieldType fieldType : fieldTypes) {
+            FIELD_NAMES[fieldType.ordinal()] = new SerializedString(IssueFields.fieldName(fieldType));
+        }
+    }
+
+    private static final SerializedString CUSTOM_FIELD_ID = new SerializedString("id");
+
+    private static final SerializedString CUSTOM_FIELD_VALUE = new SerializedString("value");
+
+    public IssueFieldsSerializer() {
+        super(IssueFields.class);
+    }
+
+    @Override
+    public void serialize(IssueFields fields, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+
+        generator.writeStartObject();
+
+        for (int i = 0; i < fields.size(); i++) {
+
+            FieldType fieldType = fields.getFieldType(i);
+            generator.writeFieldName(FIELD_NAMES[fieldType.ordinal()]);
+
+            if (fieldType == FieldType.CUSTOM_FIELD) {
+                writeCustomFields(fields, generator);
+            } else {
+                generator.writeString(fields.get(fieldType));
+            }
+        }
+
+        generator.writeEndObject();
+    }
+
+    private static void writeCustomFields(IssueFields fields, JsonGenerator generator) throws IOException {
+
+        generator.writeStartArray();
+
+        for (int i = 0; i < fields.getCustomFieldCount(); i++) {
+
+            CustomField customField = fields.getCustomField(i);
+
+            generator.writeStartObject();
+            generator.writeFieldName(CUSTOM_FIELD_ID);
+            generator.writeNumber(customField.getId());
+            generator.writeFieldName(CUSTOM_FIELD_VALUE);
+            generator.writeString(customField.getValue());
+            generator.writeEndObject();
+        }
+
+        generator.writeEndArray();
+    }
+}
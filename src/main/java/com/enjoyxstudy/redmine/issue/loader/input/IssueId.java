@@ -4,13 +4,22 @@ import com.enjoyxstudy.redmine.issue.loader.client.QueryParameter;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 @AllArgsConstructor
 @Data
+@EqualsAndHashCode(exclude = "unchanged")
 public class IssueId implements PrimaryKey {
 
     private int id;
 
+    // 差分更新で変更が無く、更新しなかった
+    private boolean unchanged;
+
+    public IssueId(int id) {
+        this(id, false);
+    }
+
     @Override
     public QueryParameter getQueryParameter() {
         return new QueryParameter("issue_id", String.valueOf(id));
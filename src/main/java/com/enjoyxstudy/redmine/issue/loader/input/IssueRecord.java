@@ -9,6 +9,9 @@ import lombok.Data;
 @Data
 public class IssueRecord {
 
+    // CSV上のレコード番号(ヘッダを除き1から)
+    private long rowNumber;
+
     private PrimaryKey primaryKey;
 
     private Map<String, Object> fields;
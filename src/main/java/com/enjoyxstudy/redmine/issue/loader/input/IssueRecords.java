@@ -2,129 +2,710 @@ package com.enjoyxstudy.redmine.issue.loader.input;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.input.BOMInputStream;
+import com.enjoyxstudy.redmine.issue.loader.metrics.LoadMetrics;
+import com.enjoyxstudy.redmine.issue.loader.metrics.LoadMetrics.Phase;
 
 import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class IssueRecords implements Iterable<IssueRecord>, Closeable {
 
-    private final Config config;
-    private final CSVParser csvParser;
+    // 並列に読み込む場合の1チャンクのおおよそのバイト数
+    private static final int PARALLEL_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final ColumnPlan[] columnPlans;
+
+    // プロジェクトごとの変換表で変換する列がある場合の、プロジェクトの列
+    private final ColumnPlan projectColumnPlan;
+
+    private final int customFieldCount;
+    private final CsvRowReader csvRowReader;
+
+    private final boolean parallelParse;
+
+    // 親チケットの列に、IDではなく行のキーが指定される
+    private final boolean parentReference;
+
+    // 読み込みと変換の時間を計測する場合に指定
+    private final LoadMetrics metrics;
+
+    @Getter
+    private final long totalBytes;
+
+    // 返却済みの行までの読み込みバイト数(進捗表示用)
+    @Getter
+    private volatile long bytesRead;
 
     public static IssueRecords parse(Path csvPath, Config config) throws IOException {
+        return parse(csvPath, config, null);
+    }
+
+    public static IssueRecords parse(Path csvPath, Config config, LoadMetrics metrics) throws IOException {
+        return parse(csvPath, config, metrics, null);
+    }
+
+    // resolvedNamesはautoResolveを指定したフィールドの名称→IDの変換表
+    public static IssueRecords parse(Path csvPath, Config config, LoadMetrics metrics,
+            ResolvedNames resolvedNames) throws IOException {
+
+        if (config.isParallelParse() && config.getCsvReader() != CsvReaderType.MAPPED) {
+            throw new IllegalArgumentException("parallelParse requires csvReader MAPPED.");
+        }
 
-        Reader csvReader = new InputStreamReader(
-                // UTF-8のBOMを考慮
-                new BOMInputStream(Files.newInputStream(csvPath)), Charset.forName(config.getCsvEncoding()));
+        Charset charset = Charset.forName(config.getCsvEncoding());
+
+        // 巨大なファイル向けに、メモリマップしてバイト単位で読み込む方法も選択可能
+        CsvRowReader csvRowReader = config.getCsvReader() == CsvReaderType.MAPPED
+                ? new MappedCsvRowReader(csvPath, charset)
+                : new CommonsCsvRowReader(csvPath, charset);
+
+        ColumnPlan[] columnPlans;
+        try {
+            columnPlans = compile(config, csvRowReader.getHeaderMap(), resolvedNames);
+        } catch (RuntimeException e) {
+            csvRowReader.close();
+            throw e;
+        }
+
+        // 設定で参照している列のみ文字列に変換
+        boolean[] selectedColumns = new boolean[csvRowReader.getHeaderMap().size()];
+        for (ColumnPlan columnPlan : columnPlans) {
+            selectedColumns[columnPlan.columnIndex] = true;
+        }
+        csvRowReader.select(selectedColumns);
+
+        int customFieldCount = (int) Arrays.stream(columnPlans)
+                .filter(x -> x.target == Target.CUSTOM_FIELD)
+                .count();
+
+        ColumnPlan projectColumnPlan = null;
+        if (Arrays.stream(columnPlans).anyMatch(x -> x.projectMappings != null)) {
+            projectColumnPlan = Arrays.stream(columnPlans)
+                    .filter(x -> x.fieldType == FieldType.PROJECT_ID)
+                    .findFirst()
+                    .get();
+        }
 
         return new IssueRecords(
-                config,
-                CSVFormat.EXCEL.withHeader().parse(csvReader));
+                columnPlans, projectColumnPlan, customFieldCount, csvRowReader, config.isParallelParse(),
+                config.getParentReference() != null, metrics,
+                Files.size(csvPath));
     }
 
     @Override
     public Iterator<IssueRecord> iterator() {
 
-        Iterator<CSVRecord> csvIterator = csvParser.iterator();
+        if (parallelParse) {
+            return new ParallelIterator(((MappedCsvRowReader) csvRowReader).split(PARALLEL_CHUNK_SIZE));
+        }
 
         return new Iterator<IssueRecord>() {
 
+            private Boolean hasNext;
+
             @Override
             public boolean hasNext() {
-                return csvIterator.hasNext();
+
+                if (hasNext == null) {
+                    try {
+                        hasNext = readRow(csvRowReader);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                return hasNext;
             }
 
             @Override
             public IssueRecord next() {
 
-                CSVRecord nextCsvRecord = csvIterator.next();
-                if (nextCsvRecord == null) {
-                    return null;
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
 
-                return toIssueRecord(nextCsvRecord);
+                hasNext = null;
+                IssueRecord issueRecord = convertRow(csvRowReader);
+                bytesRead = csvRowReader.getBytePosition();
+
+                return issueRecord;
             }
         };
     }
 
     @Override
     public void close() throws IOException {
-        csvParser.close();
+        csvRowReader.close();
     }
 
-    private IssueRecord toIssueRecord(CSVRecord csvRecord) {
+    @FunctionalInterface
+    public interface RowReferenceConsumer {
 
-        PrimaryKey primaryKey = null;
-        IssueTargetFieldsBuilder targetFieldsBuilder = new IssueTargetFieldsBuilder();
+        void accept(long rowNumber, String rowKey, String parent);
+    }
 
-        for (FieldSetting fieldSetting : config.getFields()) {
+    // 行のキーと親チケットの列のみを、変換せずに全行読み込む(行を読み込む前に呼び出すこと)
+    // 値に誤りのある行があっても、行をまたいだ参照の誤りをまとめて確認できるように
+    public void forEachRowReference(RowReferenceConsumer consumer) throws IOException {
+
+        ColumnPlan rowKeyPlan = null;
+        ColumnPlan parentPlan = null;
+        for (ColumnPlan columnPlan : columnPlans) {
+            if (columnPlan.target == Target.ROW_KEY) {
+                rowKeyPlan = columnPlan;
+            } else if (columnPlan.fieldType == FieldType.PARENT_ISSUE_ID) {
+                parentPlan = columnPlan;
+            }
+        }
 
-            String value = convertValue(csvRecord.get(fieldSetting.getHeaderName()), fieldSetting);
+        while (csvRowReader.next()) {
+            consumer.accept(
+                    csvRowReader.getRecordNumber(),
+                    rawValue(csvRowReader, rowKeyPlan),
+                    rawValue(csvRowReader, parentPlan));
+        }
+    }
 
-            FieldType fieldType = fieldSetting.getType();
-            switch (fieldType) {
-                case ISSUE_ID:
+    private static String rawValue(CsvRowReader csvRecord, ColumnPlan columnPlan) {
+
+        // 列が足りない行は、行ごとの確認でエラーとなる
+        return columnPlan != null && columnPlan.columnIndex < csvRecord.size()
+                ? csvRecord.get(columnPlan.columnIndex)
+                : null;
+    }
+
+    private boolean readRow(CsvRowReader csvRowReader) throws IOException {
+
+        if (metrics == null) {
+            return csvRowReader.next();
+        }
+
+        long startNanos = System.nanoTime();
+        boolean hasNext = csvRowReader.next();
+        metrics.record(Phase.PARSE, System.nanoTime() - startNanos);
+
+        return hasNext;
+    }
+
+    private IssueRecord convertRow(CsvRowReader csvRowReader) {
+
+        if (metrics == null) {
+            return toIssueRecord(csvRowReader);
+        }
+
+        long startNanos = System.nanoTime();
+        IssueRecord issueRecord = toIssueRecord(csvRowReader);
+        metrics.record(Phase.CONVERT, System.nanoTime() - startNanos);
+
+        return issueRecord;
+    }
+
+    private IssueRecord toIssueRecord(CsvRowReader csvRecord) {
+
+        PrimaryKey primaryKey = null;
+        String projectId = projectColumnPlan != null && projectColumnPlan.columnIndex < csvRecord.size()
+                ? projectColumnPlan.convert(csvRecord.get(projectColumnPlan.columnIndex))
+                : null;
+        IssueTargetFieldsBuilder targetFieldsBuilder = new IssueTargetFieldsBuilder(customFieldCount);
+
+        for (ColumnPlan columnPlan : columnPlans) {
+
+            if (columnPlan.columnIndex >= csvRecord.size()) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Index for header '%s' is %d but CSVRecord only has %d values!",
+                                columnPlan.headerName,
+                                columnPlan.columnIndex,
+                                csvRecord.size()));
+            }
+
+            if (columnPlan.target == Target.ROW_KEY) {
+                // 登録する項目ではない(参照はforEachRowReferenceで確認)
+                continue;
+            }
+
+            String value = columnPlan.convert(csvRecord.get(columnPlan.columnIndex), projectId);
 
+            switch (columnPlan.target) {
+                case ISSUE_ID_KEY:
                     primaryKey = new IssueId(Integer.parseInt(value));
                     break;
 
+                case CUSTOM_FIELD_KEY:
+                    primaryKey = new CustomField(columnPlan.customFieldId, value);
+                    break;
+
                 case CUSTOM_FIELD:
+                    targetFieldsBuilder.customField(new CustomField(columnPlan.customFieldId, value));
+                    break;
+
+                default:
+                    // その他の項目は更新対象フィールドとして利用
+                    targetFieldsBuilder.field(columnPlan.fieldType, value);
+                    break;
+            }
+        }
 
-                    CustomField customField = new CustomField(fieldSetting.getCustomFieldId(), value);
+        return new IssueRecord(csvRecord.getRecordNumber(), primaryKey, targetFieldsBuilder.build());
+    }
 
-                    if (fieldSetting.isPrimaryKey()) {
-                        primaryKey = customField;
-                    } else {
-                        targetFieldsBuilder.customField(customField);
-                    }
+    // 通信せずに全行の変換と値の確認を行い、全てのエラーを収集(行の読み込み前に呼び出すこと)
+    public ValidationResult validate(LoadMode mode) {
 
-                    break;
+        // parallelParseの場合は、読み込みと同じくチャンクごとに並列で確認
+        // (チャンクの区切りは囲み文字の数で判断するので、囲まれていない項目内の"があるとずれるため、それ以外は1スレッドで確認)
+        List<? extends CsvRowReader> ranges = parallelParse
+                ? ((MappedCsvRowReader) csvRowReader).split(PARALLEL_CHUNK_SIZE)
+                : Collections.singletonList(csvRowReader);
+
+        List<ChunkValidation> chunkValidations = ranges.parallelStream()
+                .map(x -> validateChunk(x, mode))
+                .collect(Collectors.toList());
+
+        long rowCount = 0;
+        List<ValidationError> errors = new ArrayList<>();
+        List<ValidationError> warnings = new ArrayList<>();
+        Map<String, Long> firstRowNumbers = new HashMap<>();
+
+        for (ChunkValidation chunkValidation : chunkValidations) {
+
+            rowCount += chunkValidation.rowCount;
+            errors.addAll(chunkValidation.errors);
+
+            for (int i = 0; i < chunkValidation.keys.size(); i++) {
+                String key = chunkValidation.keys.get(i);
+                long rowNumber = chunkValidation.keyRowNumbers[i];
+
+                Long firstRowNumber = firstRowNumbers.putIfAbsent(key, rowNumber);
+                if (firstRowNumber != null) {
+                    // 同じキーの行は順番に処理されるのでエラーにはしない
+                    warnings.add(new ValidationError(
+                            rowNumber,
+                            null,
+                            String.format("Primary key %s is also used in row %d.", key, firstRowNumber)));
+                }
+            }
+        }
+
+        return new ValidationResult(rowCount, errors, warnings);
+    }
+
+    private ChunkValidation validateChunk(CsvRowReader range, LoadMode mode) {
+
+        ChunkValidation chunkValidation = new ChunkValidation();
+
+        try {
+            while (range.next()) {
+                chunkValidation.rowCount++;
+                validateRow(range, mode, chunkValidation);
+            }
+        } catch (IOException e) {
+            // CSVの形式が不正な場合、以降の区切りが判断できないのでチャンクの残りは確認しない
+            chunkValidation.errors.add(new ValidationError(
+                    range.getRecordNumber() + 1, null, "Invalid CSV format. " + e.getMessage()));
+        }
 
+        return chunkValidation;
+    }
+
+    private void validateRow(CsvRowReader csvRecord, LoadMode mode, ChunkValidation chunkValidation) {
+
+        long rowNumber = csvRecord.getRecordNumber();
+
+        String projectId = null;
+        boolean projectConverted = true;
+        if (projectColumnPlan != null && projectColumnPlan.columnIndex < csvRecord.size()) {
+            try {
+                projectId = projectColumnPlan.convert(csvRecord.get(projectColumnPlan.columnIndex));
+            } catch (IllegalArgumentException e) {
+                projectConverted = false;
+            }
+        }
+
+        for (ColumnPlan columnPlan : columnPlans) {
+
+            if (columnPlan.columnIndex >= csvRecord.size()) {
+                chunkValidation.errors.add(new ValidationError(
+                        rowNumber,
+                        columnPlan.headerName,
+                        String.format("The row only has %d values.", csvRecord.size())));
+                continue;
+            }
+
+            if (columnPlan.target == Target.ROW_KEY) {
+                continue;
+            }
+
+            if (columnPlan.projectMappings != null && !projectConverted) {
+                // プロジェクトの列のエラーとして報告済み
+                continue;
+            }
+
+            String value;
+            try {
+                value = columnPlan.convert(csvRecord.get(columnPlan.columnIndex), projectId);
+            } catch (IllegalArgumentException e) {
+                chunkValidation.errors.add(new ValidationError(rowNumber, columnPlan.headerName, e.getMessage()));
+                continue;
+            }
+
+            // 行のキーを参照する親チケットは、全行を読み込んだ後に確認
+            String message = parentReference && columnPlan.fieldType == FieldType.PARENT_ISSUE_ID
+                    ? null
+                    : FieldValidator.check(columnPlan.fieldType, value);
+            if (message != null) {
+                chunkValidation.errors.add(new ValidationError(rowNumber, columnPlan.headerName, message));
+                continue;
+            }
+
+            if (columnPlan.target == Target.ISSUE_ID_KEY || columnPlan.target == Target.CUSTOM_FIELD_KEY) {
+
+                if (value.isEmpty()) {
+                    chunkValidation.errors.add(
+                            new ValidationError(rowNumber, columnPlan.headerName, "Primary key is empty."));
+                } else {
+                    chunkValidation.addKey(value, rowNumber);
+                }
+
+            } else if (mode == LoadMode.CREATE && value.isEmpty()
+                    && (columnPlan.fieldType == FieldType.PROJECT_ID || columnPlan.fieldType == FieldType.SUBJECT)) {
+                chunkValidation.errors.add(new ValidationError(
+                        rowNumber, columnPlan.headerName, "Value is required when created."));
+            }
+        }
+    }
+
+    private Chunk readChunk(CsvRowReader range) {
+
+        List<IssueRecord> issueRecords = new ArrayList<>();
+
+        try {
+            while (readRow(range)) {
+                issueRecords.add(convertRow(range));
+            }
+        } catch (IOException e) {
+            return new Chunk(issueRecords, range.getBytePosition(), new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            // エラーとなった行より前の行は処理させるため、読み込めた分と合わせて返却
+            return new Chunk(issueRecords, range.getBytePosition(), e);
+        }
+
+        return new Chunk(issueRecords, range.getBytePosition(), null);
+    }
+
+    private static ColumnPlan[] compile(Config config, Map<String, Integer> headerMap,
+            ResolvedNames resolvedNames) {
+
+        // 行ごとに設定を解釈しないよう、最初に列番号と変換方法を決めておく
+        ColumnPlan[] columnPlans = new ColumnPlan[config.getFields().size()
+                + (config.getParentReference() != null ? 1 : 0)];
+
+        for (int i = 0; i < config.getFields().size(); i++) {
+
+            FieldSetting fieldSetting = config.getFields().get(i);
+
+            Integer columnIndex = headerMap.get(fieldSetting.getHeaderName());
+            if (columnIndex == null) {
+                // 存在しない列は最初の行を処理する前にエラー
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Mapping for %s not found, expected one of %s",
+                                fieldSetting.getHeaderName(),
+                                headerMap.keySet()));
+            }
+
+            columnPlans[i] = new ColumnPlan(
+                    columnIndex,
+                    fieldSetting,
+                    mappings(fieldSetting, resolvedNames),
+                    projectMappings(config, fieldSetting, resolvedNames));
+        }
+
+        if (config.getParentReference() != null) {
+
+            String keyHeaderName = config.getParentReference().getKeyHeaderName();
+            Integer columnIndex = headerMap.get(keyHeaderName);
+            if (columnIndex == null) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Mapping for %s not found, expected one of %s",
+                                keyHeaderName,
+                                headerMap.keySet()));
+            }
+
+            columnPlans[columnPlans.length - 1] = new ColumnPlan(columnIndex, keyHeaderName);
+        }
+
+        return columnPlans;
+    }
+
+    private static Map<String, String> mappings(FieldSetting fieldSetting, ResolvedNames resolvedNames) {
+
+        if (!fieldSetting.isAutoResolve() || resolvedNames == null
+                || !resolvedNames.getNames().containsKey(fieldSetting.getType())) {
+            return fieldSetting.getMappings();
+        }
+
+        // 設定ファイルの変換表で、取得した変換表を上書き
+        Map<String, String> mappings = new HashMap<>(resolvedNames.getNames().get(fieldSetting.getType()));
+        if (fieldSetting.getMappings() != null) {
+            mappings.putAll(fieldSetting.getMappings());
+        }
+        return mappings;
+    }
+
+    private static Map<String, Map<String, String>> projectMappings(Config config, FieldSetting fieldSetting,
+            ResolvedNames resolvedNames) {
+
+        if (!fieldSetting.isAutoResolve() || resolvedNames == null || resolvedNames.getProjectNames() == null
+                || !resolvedNames.getProjectNames().containsKey(fieldSetting.getType())) {
+            return null;
+        }
+
+        // プロジェクトの列が無い場合は、全プロジェクトで一意な名称のみの変換表を使用
+        if (config.getFields().stream().noneMatch(x -> x.getType() == FieldType.PROJECT_ID)) {
+            return null;
+        }
+
+        return resolvedNames.getProjectNames().get(fieldSetting.getType());
+    }
+
+    private enum Target {
+
+        ISSUE_ID_KEY,
+
+        CUSTOM_FIELD_KEY,
+
+        CUSTOM_FIELD,
+
+        FIELD,
+
+        ROW_KEY
+    }
+
+    private static class ColumnPlan {
+
+        private final int columnIndex;
+
+        private final String headerName;
+
+        private final FieldType fieldType;
+
+        private final int customFieldId;
+
+        private final Map<String, String> mappings;
+
+        // プロジェクトID→名称→ID(バージョン、カテゴリを自動で変換する場合)
+        private final Map<String, Map<String, String>> projectMappings;
+
+        // 設定ファイルの変換表(プロジェクトごとの変換表より優先)
+        private final Map<String, String> configMappings;
+
+        private final Target target;
+
+        ColumnPlan(int columnIndex, FieldSetting fieldSetting, Map<String, String> mappings,
+                Map<String, Map<String, String>> projectMappings) {
+
+            this.columnIndex = columnIndex;
+            this.headerName = fieldSetting.getHeaderName();
+            this.fieldType = fieldSetting.getType();
+            this.customFieldId = fieldType == FieldType.CUSTOM_FIELD ? fieldSetting.getCustomFieldId() : 0;
+            this.mappings = mappings;
+            this.projectMappings = projectMappings;
+            this.configMappings = fieldSetting.getMappings();
+
+            switch (fieldType) {
+                case ISSUE_ID:
+                    this.target = Target.ISSUE_ID_KEY;
+                    break;
+                case CUSTOM_FIELD:
+                    this.target = fieldSetting.isPrimaryKey() ? Target.CUSTOM_FIELD_KEY : Target.CUSTOM_FIELD;
+                    break;
                 default:
-                    // その他の項目は更新対象フィールドとして利用
-                    targetFieldsBuilder.field(fieldType, value);
+                    this.target = Target.FIELD;
                     break;
             }
         }
 
-        return new IssueRecord(primaryKey, targetFieldsBuilder.build());
+        ColumnPlan(int columnIndex, String headerName) {
+
+            // 行のキー(変換も検証もしない)
+            this.columnIndex = columnIndex;
+            this.headerName = headerName;
+            this.fieldType = null;
+            this.customFieldId = 0;
+            this.mappings = null;
+            this.projectMappings = null;
+            this.configMappings = null;
+            this.target = Target.ROW_KEY;
+        }
+
+        String convert(String value, String projectId) {
+
+            if (projectMappings == null || value.isEmpty() || projectId == null || projectId.isEmpty()) {
+                return convert(value);
+            }
+
+            if (configMappings != null && configMappings.containsKey(value)) {
+                return configMappings.get(value);
+            }
+
+            Map<String, String> names = projectMappings.get(projectId);
+            String convertedValue = names != null ? names.get(value) : null;
+
+            if (convertedValue == null) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Could not mapping \"%s\" of field [%s] in project %s.",
+                                value,
+                                headerName,
+                                projectId));
+            }
+
+            return convertedValue;
+        }
+
+        String convert(String value) {
+
+            if (value.isEmpty()) {
+                return value;
+            }
+
+            if (mappings == null) {
+                // 変換表が無い場合、正規化だけ行う
+                return fieldType.normalize(value);
+            }
+
+            // 変換表がある場合、CSVから取り出した値を変換
+            String convertedValue = mappings.get(value);
+
+            if (convertedValue == null) {
+                // 一致するものが無い場合エラー
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Could not mapping \"%s\" of field [%s].",
+                                value,
+                                headerName));
+            }
+
+            return convertedValue;
+        }
     }
 
-    private String convertValue(String value, FieldSetting fieldSetting) {
+    @RequiredArgsConstructor
+    private static class Chunk {
+
+        private final List<IssueRecord> issueRecords;
+
+        private final long endPosition;
+
+        private final RuntimeException failure;
+    }
+
+    private class ParallelIterator implements Iterator<IssueRecord> {
+
+        // 先読みするチャンク数を制限し、ファイル全体をメモリに載せないようにする
+        private final int window = ForkJoinPool.commonPool().getParallelism() * 2;
+
+        private final Iterator<? extends CsvRowReader> ranges;
 
-        if (value.isEmpty()) {
-            return value;
+        private final Deque<CompletableFuture<Chunk>> pending = new ArrayDeque<>();
+
+        private Iterator<IssueRecord> current = Collections.emptyIterator();
+
+        private RuntimeException failure;
+
+        ParallelIterator(List<? extends CsvRowReader> ranges) {
+            this.ranges = ranges.iterator();
+            fill();
         }
 
-        if (fieldSetting.getMappings() == null) {
-            // 変換表が無い場合、正規化だけ行う
-            return fieldSetting.getType().normalize(value);
+        @Override
+        public boolean hasNext() {
+
+            while (!current.hasNext()) {
+
+                if (failure != null) {
+                    // 元の順番通り、エラーとなった行の前までを返却してからエラー
+                    RuntimeException e = failure;
+                    failure = null;
+                    pending.forEach(x -> x.cancel(false));
+                    pending.clear();
+                    throw e;
+                }
+
+                if (pending.isEmpty()) {
+                    return false;
+                }
+
+                Chunk chunk = pending.poll().join();
+                fill();
+
+                current = chunk.issueRecords.iterator();
+                failure = chunk.failure;
+                bytesRead = chunk.endPosition;
+            }
+
+            return true;
         }
 
-        // 変換表がある場合、CSVから取り出した値を変換
-        String convertedValue = fieldSetting.getMappings().get(value);
+        @Override
+        public IssueRecord next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
 
-        if (convertedValue == null) {
-            // 一致するものが無い場合エラー
-            throw new IllegalArgumentException(
-                    String.format(
-                            "Could not mapping \"%s\" of field [%s].",
-                            value,
-                            fieldSetting.getHeaderName()));
+            return current.next();
         }
 
-        return convertedValue;
+        private void fill() {
+
+            while (pending.size() < window && ranges.hasNext()) {
+                CsvRowReader range = ranges.next();
+                pending.add(CompletableFuture.supplyAsync(() -> readChunk(range), ForkJoinPool.commonPool()));
+            }
+        }
+    }
+
+    private static class ChunkValidation {
+
+        private long rowCount;
+
+        private final List<ValidationError> errors = new ArrayList<>();
+
+        // 重複の確認用に、キーと行番号を保持
+        private final List<String> keys = new ArrayList<>();
+
+        private long[] keyRowNumbers = new long[16];
+
+        void addKey(String key, long rowNumber) {
+
+            if (keys.size() == keyRowNumbers.length) {
+                keyRowNumbers = Arrays.copyOf(keyRowNumbers, keyRowNumbers.length * 2);
+            }
+            keyRowNumbers[keys.size()] = rowNumber;
+            keys.add(key);
+        }
     }
 }
@@ -1,36 +1,32 @@
 package com.enjoyxstudy.redmine.issue.loader.input;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-
 public class IssueTargetFieldsBuilder {
 
-    private Map<String, Object> updateTargetFields = new LinkedHashMap<>(); // テスト時に順序を保証したいので
+    private final IssueFields updateTargetFields; // 追加した順に出力される
+
+    public IssueTargetFieldsBuilder() {
+        this.updateTargetFields = new IssueFields();
+    }
+
+    public IssueTargetFieldsBuilder(int customFieldCount) {
+
+        // フィールドは種類ごとの固定の枠なので、カスタムフィールドのみ拡張が起きないサイズで確保
+        this.updateTargetFields = new IssueFields(customFieldCount);
+    }
 
     public IssueTargetFieldsBuilder field(FieldType type, String value) {
 
-        updateTargetFields.put(type.getFieldName(), value);
+        updateTargetFields.set(type, value);
         return this;
     }
 
     public IssueTargetFieldsBuilder customField(CustomField customField) {
 
-        @SuppressWarnings("unchecked")
-        List<CustomField> customFields = (List<CustomField>) updateTargetFields.get("custom_fields");
-
-        if (customFields == null) {
-            customFields = new ArrayList<>();
-            updateTargetFields.put("custom_fields", customFields);
-        }
-
-        customFields.add(customField);
-
+        updateTargetFields.addCustomField(customField);
         return this;
     }
 
-    public Map<String, Object> build() {
+    public IssueFields build() {
         return updateTargetFields;
     }
 }
@@ -0,0 +1,80 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class JobManifest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 全ファイル合計での同時実行数
+    private int parallelism = 4;
+
+    // 同時に処理するファイル数
+    private int maxConcurrentJobs = 2;
+
+    private TransportSetting transport;
+
+    private List<JobSetting> jobs = new ArrayList<>();
+
+    // ジョブのパスの基準となるディレクトリ
+    @JsonIgnore
+    private Path baseDirectory;
+
+    public static JobManifest of(Path manifestPath) throws IOException {
+
+        if (Files.isDirectory(manifestPath)) {
+            return ofDirectory(manifestPath);
+        }
+
+        JobManifest manifest = objectMapper.readValue(manifestPath.toFile(), JobManifest.class);
+        manifest.setBaseDirectory(manifestPath.toAbsolutePath().getParent());
+
+        return manifest;
+    }
+
+    // ディレクトリ内のCSVファイルと、同じ名前の設定ファイル(拡張子.json)の組をジョブとする
+    public static JobManifest ofDirectory(Path directory) throws IOException {
+
+        JobManifest manifest = new JobManifest();
+        manifest.setBaseDirectory(directory.toAbsolutePath());
+
+        List<Path> csvPaths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.csv")) {
+            stream.forEach(csvPaths::add);
+        }
+        csvPaths.sort(null);
+
+        for (Path csvPath : csvPaths) {
+
+            String csvFileName = csvPath.getFileName().toString();
+            String configFileName = csvFileName.substring(0, csvFileName.length() - ".csv".length()) + ".json";
+
+            if (!Files.exists(directory.resolve(configFileName))) {
+                throw new IllegalArgumentException(
+                        String.format("Config file %s for %s was not found.", configFileName, csvFileName));
+            }
+
+            manifest.getJobs().add(new JobSetting(configFileName, csvFileName));
+        }
+
+        return manifest;
+    }
+
+    public Path resolve(String path) {
+        return baseDirectory == null ? Paths.get(path) : baseDirectory.resolve(path);
+    }
+}
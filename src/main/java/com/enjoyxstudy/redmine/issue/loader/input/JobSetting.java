@@ -0,0 +1,16 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class JobSetting {
+
+    // マニフェストからの相対パスも可
+    private String config;
+
+    private String csv;
+}
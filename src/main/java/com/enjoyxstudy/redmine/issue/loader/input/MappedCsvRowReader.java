@@ -0,0 +1,405 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+class MappedCsvRowReader implements CsvRowReader {
+
+    // 1つのMappedByteBufferは2GBまでのため、1GBごとに分けてマッピング
+    private static final int SEGMENT_BITS = 30;
+
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    // 区切り文字、囲み文字、改行のバイトが他の文字の一部として現れない文字コードのみ対象
+    private static final Set<String> SUPPORTED_CHARSETS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "UTF-8", "US-ASCII", "ISO-8859-1", "Shift_JIS", "windows-31j", "EUC-JP")));
+
+    private static final byte COMMA = ',';
+
+    private static final byte QUOTE = '"';
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    // 範囲を分割して読み込む場合は分割元のみが保持
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    private final long limit;
+
+    private final Charset charset;
+
+    private final Map<String, Integer> headerMap;
+
+    private long position;
+
+    private long recordNumber;
+
+    private boolean[] selectedColumns;
+
+    private String[] values = new String[16];
+
+    private int size;
+
+    private byte[] buffer = new byte[256];
+
+    MappedCsvRowReader(Path csvPath, Charset charset) throws IOException {
+
+        if (!SUPPORTED_CHARSETS.contains(charset.name())) {
+            throw new IllegalArgumentException(
+                    String.format("csvEncoding %s is not supported by the MAPPED csvReader.", charset.name()));
+        }
+
+        this.charset = charset;
+        this.channel = FileChannel.open(csvPath, StandardOpenOption.READ);
+
+        try {
+            this.limit = channel.size();
+
+            int segmentCount = (int) ((limit + SEGMENT_MASK) >>> SEGMENT_BITS);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long offset = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(MapMode.READ_ONLY, offset, Math.min(SEGMENT_MASK + 1, limit - offset));
+            }
+
+            // UTF-8のBOMを考慮
+            if (charset.equals(StandardCharsets.UTF_8) && limit >= 3
+                    && byteAt(0) == (byte) 0xEF && byteAt(1) == (byte) 0xBB && byteAt(2) == (byte) 0xBF) {
+                position = 3;
+            }
+
+            this.headerMap = readHeader();
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedCsvRowReader(MappedCsvRowReader parent, long start, long end, long recordNumber) {
+
+        this.channel = null;
+        this.segments = parent.segments;
+        this.limit = end;
+        this.charset = parent.charset;
+        this.headerMap = parent.headerMap;
+        this.selectedColumns = parent.selectedColumns;
+        this.position = start;
+        this.recordNumber = recordNumber;
+    }
+
+    // ヘッダ以降を、おおよそchunkSizeごとのレコードの区切りで分割(それぞれ別スレッドで読み込み可能)
+    List<MappedCsvRowReader> split(int chunkSize) {
+
+        long dataStart = position;
+        int chunkCount = (int) ((limit - dataStart + chunkSize - 1) / chunkSize);
+
+        // 各チャンク内の囲み文字の数と、チャンク先頭が囲み文字の外/内だった場合の改行位置を並列に調べる
+        ChunkScan[] chunkScans = IntStream.range(0, chunkCount)
+                .parallel()
+                .mapToObj(i -> scan(
+                        dataStart + (long) i * chunkSize,
+                        Math.min(dataStart + (long) (i + 1) * chunkSize, limit)))
+                .toArray(ChunkScan[]::new);
+
+        // 先頭から囲み文字の内外を確定させながら、レコードの区切りとレコード番号を決める
+        List<MappedCsvRowReader> ranges = new ArrayList<>();
+        long rangeStart = dataStart;
+        long rangeRecordNumber = recordNumber;
+        long terminatorCount = recordNumber;
+        int state = 0;
+
+        for (int i = 0; i < chunkCount; i++) {
+
+            ChunkScan chunkScan = chunkScans[i];
+            long boundary = chunkScan.firstBoundaries[state];
+
+            if (i > 0 && boundary > rangeStart && boundary < limit) {
+                ranges.add(new MappedCsvRowReader(this, rangeStart, boundary, rangeRecordNumber));
+                rangeStart = boundary;
+                rangeRecordNumber = terminatorCount + 1;
+            }
+
+            terminatorCount += chunkScan.terminatorCounts[state];
+            state ^= chunkScan.quoteCount & 1;
+        }
+
+        if (rangeStart < limit) {
+            ranges.add(new MappedCsvRowReader(this, rangeStart, limit, rangeRecordNumber));
+        }
+
+        return ranges;
+    }
+
+    private ChunkScan scan(long start, long end) {
+
+        // 囲み文字の外から始まったとした場合の状態で走査し、内から始まった場合は状態を反転させたものとして同時に集計
+        ChunkScan chunkScan = new ChunkScan();
+        int state = 0;
+
+        for (long index = start; index < end; index++) {
+
+            byte b = byteAt(index);
+
+            if (b == QUOTE) {
+                chunkScan.quoteCount++;
+                state ^= 1;
+
+            } else if (b == LF || (b == CR && (index + 1 >= limit || byteAt(index + 1) != LF))) {
+                // CRLFはLFの位置で1つの改行として扱う
+                chunkScan.terminatorCounts[state]++;
+                if (chunkScan.firstBoundaries[state] < 0) {
+                    chunkScan.firstBoundaries[state] = index + 1;
+                }
+            }
+        }
+
+        return chunkScan;
+    }
+
+    @Override
+    public Map<String, Integer> getHeaderMap() {
+        return headerMap;
+    }
+
+    @Override
+    public void select(boolean[] selectedColumns) {
+        this.selectedColumns = selectedColumns;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+
+        if (position >= limit) {
+            return false;
+        }
+
+        readRecord();
+        recordNumber++;
+        return true;
+    }
+
+    @Override
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(int index) {
+
+        if (index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+
+        return values[index];
+    }
+
+    @Override
+    public long getBytePosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private Map<String, Integer> readHeader() throws IOException {
+
+        Map<String, Integer> headerMap = new LinkedHashMap<>();
+
+        if (position >= limit) {
+            return headerMap;
+        }
+
+        readRecord();
+
+        for (int i = 0; i < size; i++) {
+            String headerName = values[i];
+            if (headerMap.containsKey(headerName) && !headerName.isEmpty()) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "The header contains a duplicate name: \"%s\" in %s",
+                                headerName,
+                                Arrays.toString(Arrays.copyOf(values, size))));
+            }
+            headerMap.put(headerName, i);
+        }
+
+        return headerMap;
+    }
+
+    private void readRecord() throws IOException {
+
+        size = 0;
+
+        while (true) {
+
+            boolean selected = selectedColumns == null
+                    || (size < selectedColumns.length && selectedColumns[size]);
+
+            String value;
+            boolean endOfRecord;
+
+            if (position < limit && byteAt(position) == QUOTE) {
+
+                position++;
+                int length = 0;
+
+                while (true) {
+
+                    if (position >= limit) {
+                        throw new IOException(
+                                "(line " + (recordNumber + 1) + ") EOF reached before encapsulated token finished");
+                    }
+
+                    byte b = byteAt(position++);
+                    if (b == QUOTE) {
+                        if (position < limit && byteAt(position) == QUOTE) {
+                            // 連続した囲み文字はエスケープされた囲み文字
+                            position++;
+                        } else {
+                            break;
+                        }
+                    }
+
+                    if (selected) {
+                        appendToBuffer(length++, b);
+                    }
+                }
+
+                // 囲み文字の後は空白のみ許容
+                while (position < limit && (byteAt(position) == ' ' || byteAt(position) == '\t')) {
+                    position++;
+                }
+
+                value = selected ? new String(buffer, 0, length, charset) : null;
+                endOfRecord = skipDelimiter(true);
+
+            } else {
+
+                long start = position;
+                while (position < limit) {
+                    byte b = byteAt(position);
+                    if (b == COMMA || b == CR || b == LF) {
+                        break;
+                    }
+                    position++;
+                }
+
+                value = selected ? decode(start, position) : null;
+                endOfRecord = skipDelimiter(false);
+            }
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+
+            if (endOfRecord) {
+                return;
+            }
+        }
+    }
+
+    private boolean skipDelimiter(boolean encapsulated) throws IOException {
+
+        if (position >= limit) {
+            return true;
+        }
+
+        byte b = byteAt(position);
+        if (b == COMMA) {
+            position++;
+            // 行末のカンマの後は空の値
+            if (position >= limit) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = "";
+            }
+            return position >= limit;
+        }
+
+        if (b == CR) {
+            position++;
+            if (position < limit && byteAt(position) == LF) {
+                position++;
+            }
+            return true;
+        }
+
+        if (b == LF) {
+            position++;
+            return true;
+        }
+
+        if (encapsulated) {
+            throw new IOException(
+                    "(line " + (recordNumber + 1) + ") invalid char between encapsulated token and delimiter");
+        }
+
+        return false;
+    }
+
+    private String decode(long start, long end) {
+
+        int length = (int) (end - start);
+        if (length == 0) {
+            return "";
+        }
+
+        for (int i = 0; i < length; i++) {
+            appendToBuffer(i, byteAt(start + i));
+        }
+
+        return new String(buffer, 0, length, charset);
+    }
+
+    private void appendToBuffer(int index, byte b) {
+
+        if (index == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[index] = b;
+    }
+
+    private byte byteAt(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & SEGMENT_MASK));
+    }
+
+    private static class ChunkScan {
+
+        private int quoteCount;
+
+        // [0]はチャンク先頭が囲み文字の外、[1]は内だった場合
+        private final long[] terminatorCounts = new long[2];
+
+        private final long[] firstBoundaries = { -1, -1 };
+    }
+}
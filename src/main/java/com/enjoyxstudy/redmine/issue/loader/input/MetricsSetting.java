@@ -0,0 +1,16 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Data;
+
+@Data
+public class MetricsSetting {
+
+    // 未指定の場合は標準出力に出力
+    private String summaryFile;
+
+    private String prometheusFile;
+
+    private int prometheusIntervalSeconds = 10;
+
+    private int slowRequestCount = 10;
+}
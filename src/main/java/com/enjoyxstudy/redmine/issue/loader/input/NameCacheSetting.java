@@ -0,0 +1,12 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Data;
+
+@Data
+public class NameCacheSetting {
+
+    private String file;
+
+    // 有効期限を過ぎた場合はRedmineから取得し直す
+    private long ttlSeconds = 86400;
+}
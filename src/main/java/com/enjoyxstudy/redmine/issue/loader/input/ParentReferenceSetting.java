@@ -0,0 +1,10 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Data;
+
+@Data
+public class ParentReferenceSetting {
+
+    // 行を識別する列(親チケットの列にこの列の値を指定すると、その行で作成したチケットが親となる)
+    private String keyHeaderName;
+}
@@ -0,0 +1,17 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.util.Map;
+
+import lombok.Value;
+
+// autoResolveを指定したフィールドの、Redmineから取得した名称→IDの変換表
+@Value
+public class ResolvedNames {
+
+    // フィールドの種類→名称→ID
+    private final Map<FieldType, Map<String, String>> names;
+
+    // プロジェクトごとに名称が決まるもの(バージョン、カテゴリ)の変換表
+    // フィールドの種類→プロジェクトID→名称→ID
+    private final Map<FieldType, Map<String, Map<String, String>>> projectNames;
+}
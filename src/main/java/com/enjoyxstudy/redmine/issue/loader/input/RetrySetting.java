@@ -0,0 +1,23 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Data;
+
+@Data
+public class RetrySetting {
+
+    // 初回を含めた最大試行回数
+    private int maxAttempts = 3;
+
+    private long initialBackoffMillis = 500;
+
+    private long maxBackoffMillis = 30000;
+
+    // リクエスト1件につき再試行できる回数の割合(障害時に再試行が殺到しないように)
+    private double budgetRatio = 0.1;
+
+    // 再試行の予算の初期値
+    private int initialBudget = 10;
+
+    // 新規作成の重複を防ぐための目印を格納するカスタムフィールドのID
+    private Integer idempotencyCustomFieldId;
+}
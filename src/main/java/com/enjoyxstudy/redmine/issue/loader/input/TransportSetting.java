@@ -0,0 +1,27 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Data;
+
+@Data
+public class TransportSetting {
+
+    // 未指定の項目はOkHttpのデフォルト値を使用
+
+    private Integer maxIdleConnections;
+
+    private Integer keepAliveSeconds;
+
+    private Integer maxRequests;
+
+    private Integer maxRequestsPerHost;
+
+    private Integer connectTimeoutSeconds;
+
+    private Integer readTimeoutSeconds;
+
+    private Integer writeTimeoutSeconds;
+
+    private boolean http2 = true;
+
+    private int prewarmConnections;
+}
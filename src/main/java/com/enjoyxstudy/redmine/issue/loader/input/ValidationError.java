@@ -0,0 +1,22 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import lombok.Value;
+
+@Value
+public class ValidationError {
+
+    // CSV上のレコード番号(ヘッダを除き1から)
+    private final long rowNumber;
+
+    // 行全体に関するものの場合はnull
+    private final String headerName;
+
+    private final String message;
+
+    @Override
+    public String toString() {
+        return headerName == null
+                ? String.format("Row %d: %s", rowNumber, message)
+                : String.format("Row %d [%s]: %s", rowNumber, headerName, message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.enjoyxstudy.redmine.issue.loader.input;
+
+import java.util.List;
+
+import lombok.Value;
+
+@Value
+public class ValidationResult {
+
+    private final long rowCount;
+
+    private final List<ValidationError> errors;
+
+    // 処理は可能だが確認した方がよいもの(同じキーの行が複数あるなど)
+    private final List<ValidationError> warnings;
+
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
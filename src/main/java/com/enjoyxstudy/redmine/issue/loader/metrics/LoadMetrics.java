@@ -0,0 +1,307 @@
+package com.enjoyxstudy.redmine.issue.loader.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.Value;
+
+public class LoadMetrics {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static final String PROMETHEUS_PREFIX = "redmine_issue_loader_";
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    public enum Phase {
+
+        PARSE,
+
+        CONVERT,
+
+        LOOKUP,
+
+        CREATE,
+
+        UPDATE,
+
+        // 1行の処理全体(検索から作成、更新まで、再試行を含む)
+        ROW
+    }
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<RequestKey, LatencyHistogram> requests = new ConcurrentHashMap<>();
+
+    private final int slowRequestCount;
+
+    // 遅いリクエストの上位のみ保持(先頭が最も速いもの)
+    private final PriorityQueue<SlowRequest> slowRequests = new PriorityQueue<>(
+            Comparator.comparingLong(SlowRequest::getNanos));
+
+    // 上位に入らないリクエストでロックを取らないよう、保持している中で最も速いものの時間を保持
+    private volatile long slowRequestThresholdNanos;
+
+    public LoadMetrics(int slowRequestCount) {
+
+        this.slowRequestCount = slowRequestCount;
+
+        // 集計中に追加されないよう、最初に全て作成しておく
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    public void increment(String counterName) {
+        counters.computeIfAbsent(counterName, x -> new LongAdder()).increment();
+    }
+
+    public long getCount(String counterName) {
+
+        LongAdder counter = counters.get(counterName);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    // statusは通信エラーなどで応答が無い場合0
+    public void recordRequest(String endpoint, String url, int status, long nanos) {
+
+        requests.computeIfAbsent(new RequestKey(endpoint, status), x -> new LatencyHistogram()).record(nanos);
+
+        if (slowRequestCount > 0 && nanos > slowRequestThresholdNanos) {
+            synchronized (slowRequests) {
+                slowRequests.add(new SlowRequest(endpoint, url, status, nanos));
+                if (slowRequests.size() > slowRequestCount) {
+                    slowRequests.poll();
+                }
+                if (slowRequests.size() == slowRequestCount) {
+                    slowRequestThresholdNanos = slowRequests.peek().getNanos();
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> toSummary() {
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        Map<String, Object> counterSummary = new TreeMap<>();
+        counters.forEach((name, counter) -> counterSummary.put(name, counter.sum()));
+        summary.put("counters", counterSummary);
+
+        Map<String, Object> phaseSummary = new LinkedHashMap<>();
+        phases.forEach((phase, histogram) -> {
+            if (histogram.getCount() > 0) {
+                phaseSummary.put(phase.name().toLowerCase(Locale.ENGLISH), toSummary(histogram));
+            }
+        });
+        summary.put("phases", phaseSummary);
+
+        // エンドポイントごと(全ステータス)と、エンドポイント・ステータスごと
+        Set<String> endpoints = new TreeSet<>();
+        List<Map<String, Object>> requestSummaries = new ArrayList<>();
+        sortedRequests().forEach((key, histogram) -> {
+            endpoints.add(key.getEndpoint());
+
+            Map<String, Object> requestSummary = new LinkedHashMap<>();
+            requestSummary.put("endpoint", key.getEndpoint());
+            requestSummary.put("status", statusLabel(key.getStatus()));
+            requestSummary.putAll(toSummary(histogram));
+            requestSummaries.add(requestSummary);
+        });
+
+        Map<String, Object> endpointSummary = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            endpointSummary.put(endpoint, toSummary(mergedHistogram(endpoint)));
+        }
+        summary.put("endpoints", endpointSummary);
+        summary.put("requests", requestSummaries);
+
+        List<Map<String, Object>> slowRequestSummaries = new ArrayList<>();
+        for (SlowRequest slowRequest : getSlowRequests()) {
+            Map<String, Object> slowRequestSummary = new LinkedHashMap<>();
+            slowRequestSummary.put("endpoint", slowRequest.getEndpoint());
+            slowRequestSummary.put("url", slowRequest.getUrl());
+            slowRequestSummary.put("status", statusLabel(slowRequest.getStatus()));
+            slowRequestSummary.put("millis", toMillis(slowRequest.getNanos()));
+            slowRequestSummaries.add(slowRequestSummary);
+        }
+        summary.put("slowRequests", slowRequestSummaries);
+
+        return summary;
+    }
+
+    public String toSummaryJson() throws IOException {
+        return objectMapper.writeValueAsString(toSummary());
+    }
+
+    public void writeSummary(Path path) throws IOException {
+        write(path, toSummaryJson());
+    }
+
+    public String toPrometheus() {
+
+        StringBuilder text = new StringBuilder();
+
+        text.append("# TYPE " + PROMETHEUS_PREFIX + "elapsed_seconds gauge\n")
+                .append(PROMETHEUS_PREFIX + "elapsed_seconds ")
+                .append(toSeconds(System.nanoTime() - startNanos)).append('\n');
+
+        new TreeMap<>(counters).forEach((name, counter) -> {
+            text.append("# TYPE " + PROMETHEUS_PREFIX).append(name).append("_total counter\n")
+                    .append(PROMETHEUS_PREFIX).append(name).append("_total ").append(counter.sum()).append('\n');
+        });
+
+        text.append("# TYPE " + PROMETHEUS_PREFIX + "phase_seconds summary\n");
+        phases.forEach((phase, histogram) -> appendSummary(
+                text, "phase_seconds", "phase=\"" + phase.name().toLowerCase(Locale.ENGLISH) + "\"", histogram));
+
+        text.append("# TYPE " + PROMETHEUS_PREFIX + "request_seconds summary\n");
+        sortedRequests().forEach((key, histogram) -> appendSummary(
+                text,
+                "request_seconds",
+                "endpoint=\"" + key.getEndpoint() + "\",status=\"" + statusLabel(key.getStatus()) + "\"",
+                histogram));
+
+        return text.toString();
+    }
+
+    public void writePrometheus(Path path) throws IOException {
+        write(path, toPrometheus());
+    }
+
+    public List<SlowRequest> getSlowRequests() {
+
+        List<SlowRequest> result;
+        synchronized (slowRequests) {
+            result = new ArrayList<>(slowRequests);
+        }
+        result.sort(Comparator.comparingLong(SlowRequest::getNanos).reversed());
+
+        return result;
+    }
+
+    private Map<RequestKey, LatencyHistogram> sortedRequests() {
+
+        Map<RequestKey, LatencyHistogram> sorted = new TreeMap<>(
+                Comparator.comparing(RequestKey::getEndpoint).thenComparingInt(RequestKey::getStatus));
+        sorted.putAll(requests);
+
+        return sorted;
+    }
+
+    private LatencyHistogram mergedHistogram(String endpoint) {
+
+        // ステータスごとのヒストグラムをバケット単位で合算
+        LatencyHistogram merged = new LatencyHistogram();
+        requests.forEach((key, histogram) -> {
+            if (key.getEndpoint().equals(endpoint)) {
+                merged.merge(histogram);
+            }
+        });
+
+        return merged;
+    }
+
+    private static void appendSummary(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+
+        for (double quantile : QUANTILES) {
+            text.append(PROMETHEUS_PREFIX).append(name)
+                    .append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(toSeconds(histogram.percentileNanos(quantile))).append('\n');
+        }
+
+        text.append(PROMETHEUS_PREFIX).append(name).append("_sum{").append(labels).append("} ")
+                .append(toSeconds(histogram.getTotalNanos())).append('\n');
+        text.append(PROMETHEUS_PREFIX).append(name).append("_count{").append(labels).append("} ")
+                .append(histogram.getCount()).append('\n');
+    }
+
+    private static Map<String, Object> toSummary(LatencyHistogram histogram) {
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getCount());
+        summary.put("totalMillis", toMillis(histogram.getTotalNanos()));
+        summary.put("p50Millis", toMillis(histogram.percentileNanos(0.5)));
+        summary.put("p99Millis", toMillis(histogram.percentileNanos(0.99)));
+        summary.put("maxMillis", toMillis(histogram.getMaxNanos()));
+
+        return summary;
+    }
+
+    private static String statusLabel(int status) {
+        return status == 0 ? "error" : String.valueOf(status);
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private static double toSeconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    private static void write(Path path, String content) throws IOException {
+
+        // 読み取り側が書き込み途中の内容を読まないよう、一時ファイルから置き換える
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporaryPath, content.getBytes(StandardCharsets.UTF_8));
+
+        try {
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Value
+    private static class RequestKey {
+
+        private final String endpoint;
+
+        private final int status;
+    }
+
+    @Value
+    public static class SlowRequest {
+
+        private final String endpoint;
+
+        private final String url;
+
+        private final int status;
+
+        private final long nanos;
+    }
+}
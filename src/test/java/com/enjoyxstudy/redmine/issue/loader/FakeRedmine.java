@@ -0,0 +1,532 @@
+package com.enjoyxstudy.redmine.issue.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.IOUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Builder;
+import lombok.Value;
+
+// 負荷試験用の疑似Redmine(ネットワークを使わず、チケットをメモリ上に保持する)
+public class FakeRedmine implements Closeable {
+
+    static {
+        // JDKのHTTPサーバはデフォルトでNagleアルゴリズムが有効となり、応答ごとに40ms程度待たされるので無効化
+        // (最初のHttpServer生成時に読み込まれるので、それより前に設定する必要あり)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public static final String SEARCH_ENDPOINT = "GET /issues.json";
+
+    public static final String CREATE_ENDPOINT = "POST /issues.json";
+
+    public static final String UPDATE_ENDPOINT = "PUT /issues/:id.json";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final Pattern ISSUE_PATH = Pattern.compile("/issues/(\\d+)\\.json");
+
+    private static final int DEFAULT_LIMIT = 25;
+
+    private static final int MAX_LIMIT = 100;
+
+    // 終了扱いのステータス(Redmineの初期データの「終了」「却下」)
+    private static final Set<Integer> CLOSED_STATUS_IDS = new HashSet<>(Arrays.asList(5, 6));
+
+    // 登録時のフィールド名と、取得時の項目名の対応(取得時はIDではなくオブジェクトとして返却される)
+    private static final Map<String, String> REFERENCE_NAMES;
+    static {
+        Map<String, String> referenceNames = new HashMap<>();
+        referenceNames.put("project_id", "project");
+        referenceNames.put("tracker_id", "tracker");
+        referenceNames.put("status_id", "status");
+        referenceNames.put("priority_id", "priority");
+        referenceNames.put("assigned_to_id", "assigned_to");
+        referenceNames.put("category_id", "category");
+        referenceNames.put("fixed_version_id", "fixed_version");
+        referenceNames.put("parent_issue_id", "parent");
+        REFERENCE_NAMES = Collections.unmodifiableMap(referenceNames);
+    }
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    // チケットID→チケット(検索結果はRedmineと同じくID降順)
+    private final NavigableMap<Integer, Map<String, Object>> issues = new TreeMap<>();
+
+    // "カスタムフィールドID=値"→チケットID(1件ずつ検索されても全件を走査しないように)
+    private final Map<String, Set<Integer>> customFieldIndex = new HashMap<>();
+
+    private int lastIssueId;
+
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+
+    private volatile Faults faults = Faults.builder().build();
+
+    @Value
+    @Builder
+    public static class Faults {
+
+        // 応答までの遅延(latencyMillis + 0〜jitterMillisの乱数)
+        private final long latencyMillis;
+
+        private final long jitterMillis;
+
+        // 以下はリクエストごとの発生確率(0〜1)
+        private final double tooManyRequestsRate;
+
+        private final double serviceUnavailableRate;
+
+        // 処理せずに接続を切断
+        private final double connectionResetRate;
+
+        // 処理した上で応答を返さずに接続を切断(作成済みなのに失敗扱いとなるケース)
+        private final double lostResponseRate;
+
+        // 429、503の場合のRetry-After(0の場合は付与しない)
+        private final int retryAfterSeconds;
+    }
+
+    public void start() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-redmine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    public void setFaults(Faults faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public void close() {
+
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public int addIssue(Map<String, Object> fields) throws IOException {
+
+        // 送信時と同じ形(カスタムフィールドもMap)に揃える
+        @SuppressWarnings("unchecked")
+        Map<String, Object> jsonFields = objectMapper.readValue(objectMapper.writeValueAsBytes(fields), Map.class);
+        return createIssue(jsonFields);
+    }
+
+    public synchronized Map<String, Object> getIssue(int issueId) {
+        Map<String, Object> issue = issues.get(issueId);
+        return issue == null ? null : new LinkedHashMap<>(issue);
+    }
+
+    public synchronized int getIssueCount() {
+        return issues.size();
+    }
+
+    public long getRequestCount(String endpoint) {
+        LongAdder count = requestCounts.get(endpoint);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getRequestCount() {
+        return requestCounts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getRawPath();
+            Matcher issuePathMatcher = ISSUE_PATH.matcher(path);
+
+            String endpoint = path.equals("/issues.json")
+                    ? method + " /issues.json"
+                    : issuePathMatcher.matches() ? method + " /issues/:id.json" : method + " " + path;
+            requestCounts.computeIfAbsent(endpoint, x -> new LongAdder()).increment();
+
+            Map<String, Object> requestBody = readBody(exchange);
+
+            Faults currentFaults = faults;
+            sleep(currentFaults);
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < currentFaults.getConnectionResetRate()) {
+                // 応答を返さずに閉じると、クライアント側は接続が切れたものとして扱う
+                return;
+            }
+            if (random.nextDouble() < currentFaults.getTooManyRequestsRate()) {
+                sendOverloaded(exchange, 429, currentFaults);
+                return;
+            }
+            if (random.nextDouble() < currentFaults.getServiceUnavailableRate()) {
+                sendOverloaded(exchange, 503, currentFaults);
+                return;
+            }
+
+            Response response;
+            if (endpoint.equals(SEARCH_ENDPOINT)) {
+                response = search(parseQuery(exchange.getRequestURI().getRawQuery()));
+            } else if (endpoint.equals(CREATE_ENDPOINT)) {
+                response = create(requestBody);
+            } else if (endpoint.equals(UPDATE_ENDPOINT)) {
+                response = update(Integer.parseInt(issuePathMatcher.group(1)), requestBody);
+            } else if (endpoint.equals("GET /issues/:id.json")) {
+                Map<String, Object> issue = getIssue(Integer.parseInt(issuePathMatcher.group(1)));
+                response = issue == null
+                        ? new Response(404, null)
+                        : new Response(200, Collections.singletonMap("issue", issue));
+            } else {
+                response = new Response(404, null);
+            }
+
+            if (random.nextDouble() < currentFaults.getLostResponseRate()) {
+                return;
+            }
+
+            send(exchange, response.getStatus(), response.getBody());
+
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response search(Map<String, String> query) {
+
+        int offset = query.containsKey("offset") ? Integer.parseInt(query.get("offset")) : 0;
+        int limit = query.containsKey("limit")
+                ? Math.min(Integer.parseInt(query.get("limit")), MAX_LIMIT)
+                : DEFAULT_LIMIT;
+
+        List<Map<String, Object>> matchedIssues = new ArrayList<>();
+        synchronized (this) {
+            for (Map<String, Object> issue : candidates(query)) {
+                if (matches(issue, query)) {
+                    matchedIssues.add(new LinkedHashMap<>(issue));
+                }
+            }
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("issues", matchedIssues.subList(
+                Math.min(offset, matchedIssues.size()), Math.min(offset + limit, matchedIssues.size())));
+        body.put("total_count", matchedIssues.size());
+        body.put("offset", offset);
+        body.put("limit", limit);
+
+        return new Response(200, body);
+    }
+
+    private Collection<Map<String, Object>> candidates(Map<String, String> query) {
+
+        if (query.containsKey("issue_id")) {
+            return Arrays.stream(query.get("issue_id").split(","))
+                    .map(x -> issues.get(Integer.parseInt(x.trim())))
+                    .filter(x -> x != null)
+                    .sorted((x, y) -> Integer.compare((int) y.get("id"), (int) x.get("id")))
+                    .collect(Collectors.toList());
+        }
+
+        for (Map.Entry<String, String> parameter : query.entrySet()) {
+            if (parameter.getKey().startsWith("cf_")) {
+                Set<Integer> issueIds = customFieldIndex.getOrDefault(
+                        parameter.getKey().substring("cf_".length()) + "=" + parameter.getValue(),
+                        Collections.emptySet());
+                return issueIds.stream()
+                        .sorted(Collections.reverseOrder())
+                        .map(issues::get)
+                        .collect(Collectors.toList());
+            }
+        }
+
+        return issues.descendingMap().values();
+    }
+
+    private boolean matches(Map<String, Object> issue, Map<String, String> query) {
+
+        // 指定が無い場合は未完了のチケットのみ
+        String statusId = query.getOrDefault("status_id", "open");
+        int currentStatusId = referenceId(issue, "status");
+        if (statusId.equals("open") && CLOSED_STATUS_IDS.contains(currentStatusId)
+                || statusId.equals("closed") && !CLOSED_STATUS_IDS.contains(currentStatusId)
+                || !statusId.equals("*") && !statusId.equals("open") && !statusId.equals("closed")
+                        && Integer.parseInt(statusId) != currentStatusId) {
+            return false;
+        }
+
+        if (query.containsKey("project_id")
+                && Integer.parseInt(query.get("project_id")) != referenceId(issue, "project")) {
+            return false;
+        }
+
+        for (Map.Entry<String, String> parameter : query.entrySet()) {
+            if (parameter.getKey().startsWith("cf_")
+                    && !parameter.getValue().equals(customFieldValue(
+                            issue, Integer.parseInt(parameter.getKey().substring("cf_".length()))))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private Response create(Map<String, Object> requestBody) {
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fields = (Map<String, Object>) requestBody.get("issue");
+
+        if (fields == null || isBlank(fields.get("project_id")) || isBlank(fields.get("subject"))) {
+            return new Response(422, Collections.singletonMap(
+                    "errors", Arrays.asList("Project cannot be blank", "Subject cannot be blank")));
+        }
+
+        int issueId = createIssue(fields);
+
+        return new Response(201, Collections.singletonMap("issue", getIssue(issueId)));
+    }
+
+    private Response update(int issueId, Map<String, Object> requestBody) {
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fields = (Map<String, Object>) requestBody.get("issue");
+
+        synchronized (this) {
+            Map<String, Object> issue = issues.get(issueId);
+            if (issue == null) {
+                return new Response(404, null);
+            }
+            if (fields != null) {
+                applyFields(issue, fields);
+            }
+        }
+
+        return new Response(204, null);
+    }
+
+    private synchronized int createIssue(Map<String, Object> fields) {
+
+        int issueId = ++lastIssueId;
+
+        Map<String, Object> issue = new LinkedHashMap<>();
+        issue.put("id", issueId);
+        issue.put("tracker", reference(1));
+        issue.put("status", reference(1));
+        issue.put("priority", reference(2));
+        issue.put("custom_fields", new ArrayList<Map<String, Object>>());
+        issues.put(issueId, issue);
+
+        applyFields(issue, fields);
+
+        return issueId;
+    }
+
+    private void applyFields(Map<String, Object> issue, Map<String, Object> fields) {
+
+        int issueId = (int) issue.get("id");
+
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+
+            if (field.getKey().equals("custom_fields")) {
+
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> customFields = (List<Map<String, Object>>) field.getValue();
+                for (Map<String, Object> customField : customFields) {
+                    putCustomField(issue, issueId,
+                            toInt(customField.get("id")), toText(customField.get("value")));
+                }
+
+            } else if (REFERENCE_NAMES.containsKey(field.getKey())) {
+                issue.put(REFERENCE_NAMES.get(field.getKey()),
+                        isBlank(field.getValue()) ? null : reference(toInt(field.getValue())));
+            } else {
+                issue.put(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    private void putCustomField(Map<String, Object> issue, int issueId, int customFieldId, String value) {
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> customFields = (List<Map<String, Object>>) issue.get("custom_fields");
+
+        Map<String, Object> customField = customFields.stream()
+                .filter(x -> (int) x.get("id") == customFieldId)
+                .findFirst()
+                .orElse(null);
+
+        if (customField == null) {
+            customField = new LinkedHashMap<>();
+            customField.put("id", customFieldId);
+            customFields.add(customField);
+        } else {
+            Set<Integer> oldIssueIds = customFieldIndex.get(customFieldId + "=" + customField.get("value"));
+            if (oldIssueIds != null) {
+                oldIssueIds.remove(issueId);
+            }
+        }
+
+        customField.put("value", value);
+        customFieldIndex.computeIfAbsent(customFieldId + "=" + value, x -> new HashSet<>()).add(issueId);
+    }
+
+    private static String customFieldValue(Map<String, Object> issue, int customFieldId) {
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> customFields = (List<Map<String, Object>>) issue.get("custom_fields");
+
+        return customFields.stream()
+                .filter(x -> (int) x.get("id") == customFieldId)
+                .map(x -> (String) x.get("value"))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static int referenceId(Map<String, Object> issue, String referenceName) {
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> reference = (Map<String, Object>) issue.get(referenceName);
+        return reference == null ? 0 : (int) reference.get("id");
+    }
+
+    private static Map<String, Object> reference(int id) {
+        return Collections.singletonMap("id", id);
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+
+        try (InputStream body = exchange.getRequestBody()) {
+
+            byte[] bytes = IOUtils.toByteArray(body);
+            if (bytes.length == 0) {
+                return Collections.emptyMap();
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> requestBody = objectMapper.readValue(bytes, Map.class);
+            return requestBody;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(
+                        URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private static void sendOverloaded(HttpExchange exchange, int status, Faults faults) throws IOException {
+
+        if (faults.getRetryAfterSeconds() > 0) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(faults.getRetryAfterSeconds()));
+        }
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void sleep(Faults faults) {
+
+        long delayMillis = faults.getLatencyMillis() + (faults.getJitterMillis() > 0
+                ? ThreadLocalRandom.current().nextLong(faults.getJitterMillis() + 1)
+                : 0);
+
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static boolean isBlank(Object value) {
+        return value == null || value.toString().isEmpty();
+    }
+
+    private static int toInt(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+    }
+
+    private static String toText(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    @Value
+    private static class Response {
+
+        private final int status;
+
+        private final Object body;
+    }
+}
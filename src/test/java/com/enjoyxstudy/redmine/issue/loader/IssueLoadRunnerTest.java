@@ -3,21 +3,65 @@ package com.enjoyxstudy.redmine.issue.loader;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.enjoyxstudy.redmine.issue.loader.input.Config;
-
+import com.enjoyxstudy.redmine.issue.loader.input.CsvReaderType;
+import com.enjoyxstudy.redmine.issue.loader.input.DaemonSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
+import com.enjoyxstudy.redmine.issue.loader.input.FingerprintSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueRecord;
+import com.enjoyxstudy.redmine.issue.loader.input.IssueRecords;
+import com.enjoyxstudy.redmine.issue.loader.input.JobManifest;
+import com.enjoyxstudy.redmine.issue.loader.input.MetricsSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.NameCacheSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.ParentReferenceSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.RetrySetting;
+import com.enjoyxstudy.redmine.issue.loader.input.TransportSetting;
+import com.enjoyxstudy.redmine.issue.loader.input.ValidationError;
+import com.enjoyxstudy.redmine.issue.loader.input.ValidationResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 
 public class IssueLoadRunnerTest {
 
+    // 作成したファイルはテストごとに削除
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void execute_新規作成_全項目() throws URISyntaxException, IOException, InterruptedException {
 
@@ -323,6 +367,103 @@ public class IssueLoadRunnerTest {
         }
     }
 
+    @Test
+    public void execute_差分更新_変更の無いチケットは更新せずに出力() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":1,\"status\":{\"id\":1}}]}"));
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":2,\"status\":{\"id\":1}}]}"));
+            server.enqueue(new MockResponse());
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":3,\"status\":{\"id\":3}}]}"));
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("update-status_id-with-custom_field.json").toURI());
+            Config config = Config.of(configPath);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+            config.setDeltaUpdate(true);
+
+            Path csvPath = Paths.get(IssueLoadRunnerTest.class.getResource("issues-status_id.csv").toURI());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+            runner.execute(config, csvPath);
+
+            // 変更の無い1レコード目、3レコード目は更新しない
+            assertThat(server.getRequestCount()).isEqualTo(4);
+
+            // 出力は集計と同じく、変更の無いものと更新したものを区別
+            assertThat(out.toString("UTF-8").split("\\R")).containsExactly(
+                    "#1 is unchanged.",
+                    "#2 is updated.",
+                    "#3 is unchanged.",
+                    "2 issues were unchanged and skipped, 1 issues were updated only changed fields.");
+        }
+    }
+
+    @Test
+    public void execute_並列で更新_同一キーは順番に処理() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            List<String> issue1Bodies = Collections.synchronizedList(new ArrayList<>());
+
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+
+                    String path = request.getPath();
+                    if (request.getMethod().equals("GET")) {
+                        // cf_1=A -> 1, B -> 2, C -> 3
+                        int id = path.charAt(path.length() - 1) - 'A' + 1;
+                        return new MockResponse().setBody("{\"issues\":[{\"id\":" + id + "}]}");
+                    }
+
+                    if (path.equals("/issues/1.json")) {
+                        issue1Bodies.add(request.getBody().readUtf8());
+                    }
+                    return new MockResponse();
+                }
+            });
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("update-status_id-with-custom_field.json").toURI());
+            Config config = Config.of(configPath);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+            config.setParallelism(4);
+
+            Path csvPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("issues-status_id-duplicate_key.csv").toURI());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+            int loadedCount = runner.execute(config, csvPath);
+
+            assertThat(loadedCount).isEqualTo(4);
+            assertThat(server.getRequestCount()).isEqualTo(8);
+
+            // 同一キーの行は入力順に更新
+            assertThat(issue1Bodies).containsExactly(
+                    "{\"issue\":{\"status_id\":\"1\"}}",
+                    "{\"issue\":{\"status_id\":\"3\"}}");
+
+            // 結果は入力順に出力
+            assertThat(out.toString("UTF-8").split("\\R")).containsExactly(
+                    "#1 is updated.",
+                    "#2 is updated.",
+                    "#1 is updated.",
+                    "#3 is updated.");
+        }
+    }
+
     @Test
     public void execute_新規作成_プロジェクトIDなし() throws URISyntaxException, IOException, InterruptedException {
 
@@ -541,4 +682,1122 @@ public class IssueLoadRunnerTest {
             }
         }
     }
+
+    @Test
+    public void execute_通信設定と事前接続() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+
+                    if (request.getMethod().equals("GET")) {
+                        return new MockResponse().setBody("{\"issues\":[]}");
+                    }
+                    return new MockResponse().setBody("{\"issue\":{\"id\":1}}");
+                }
+            });
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("basic-auth.json").toURI());
+            Config config = Config.of(configPath);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+
+            TransportSetting transport = new TransportSetting();
+            transport.setMaxIdleConnections(2);
+            transport.setConnectTimeoutSeconds(5);
+            transport.setReadTimeoutSeconds(5);
+            transport.setHttp2(false);
+            transport.setPrewarmConnections(2);
+            config.setTransport(transport);
+
+            Path csvPath = Paths.get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI());
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            int loadedCount = runner.execute(config, csvPath);
+
+            assertThat(loadedCount).isEqualTo(2);
+
+            // 事前接続2件 + 作成2件
+            assertThat(server.getRequestCount()).isEqualTo(4);
+
+            for (int i = 0; i < 2; i++) {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("GET");
+                assertThat(request.getHeader("Authorization")).isEqualTo("Basic dXNlcjpwYXNz");
+                assertThat(request.getPath()).isEqualTo("/issues.json?limit=1");
+            }
+            for (int i = 0; i < 2; i++) {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("POST");
+                assertThat(request.getHeader("Authorization")).isEqualTo("Basic dXNlcjpwYXNz");
+            }
+        }
+    }
+
+    @Test
+    public void execute_中断後に再開() throws URISyntaxException, IOException, InterruptedException {
+
+        Path workDir = temporaryFolder.newFolder().toPath();
+        Path csvPath = workDir.resolve("issues.csv");
+        Files.copy(
+                Paths.get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI()),
+                csvPath);
+
+        Path configPath = Paths
+                .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            // 2件目でエラー
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":1}}"));
+            server.enqueue(new MockResponse().setResponseCode(422));
+
+            server.start();
+
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+            config.setJournal(true);
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            assertThatThrownBy(() -> runner.execute(config, csvPath))
+                    .isInstanceOf(IOException.class);
+
+            assertThat(Files.readAllLines(LoadJournal.journalPath(csvPath))).containsExactly(
+                    "1\tcreated\t1\t");
+        }
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":2}}"));
+
+            server.start();
+
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            int loadedCount = runner.execute(config, csvPath, true);
+
+            // 処理済みの1件目は飛ばす
+            assertThat(loadedCount).isEqualTo(1);
+            assertThat(server.getRequestCount()).isEqualTo(1);
+            assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo(
+                    "{\"issue\":{\"project_id\":\"2\",\"subject\":\"タイトル2\"}}");
+
+            assertThat(Files.readAllLines(LoadJournal.journalPath(csvPath))).containsExactly(
+                    "1\tcreated\t1\t",
+                    "2\tcreated\t2\t");
+        }
+    }
+
+    @Test
+    public void execute_並列で失敗_送信中の行は完了を待ってジャーナルに記録() throws URISyntaxException, IOException, InterruptedException {
+
+        Path workDir = temporaryFolder.newFolder().toPath();
+        Path csvPath = workDir.resolve("issues.csv");
+        Files.copy(
+                Paths.get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI()),
+                csvPath);
+
+        Path configPath = Paths
+                .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            CountDownLatch secondReceived = new CountDownLatch(1);
+
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+
+                    if (request.getBody().readUtf8().contains("タイトル2")) {
+                        secondReceived.countDown();
+                        // 1件目の失敗後に応答
+                        Thread.sleep(500);
+                        return new MockResponse().setBody("{\"issue\":{\"id\":2}}");
+                    }
+
+                    // 2件目の送信中にエラー
+                    secondReceived.await(10, TimeUnit.SECONDS);
+                    return new MockResponse().setResponseCode(422);
+                }
+            });
+
+            server.start();
+
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+            config.setJournal(true);
+            config.setParallelism(2);
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            assertThatThrownBy(() -> runner.execute(config, csvPath))
+                    .isInstanceOf(IOException.class);
+
+            // 送信中だった2件目は中断されずに完了し、再開時に二重に登録されないよう記録される
+            assertThat(server.getRequestCount()).isEqualTo(2);
+            assertThat(Files.readAllLines(LoadJournal.journalPath(csvPath))).containsExactly(
+                    "2\tcreated\t2\t");
+        }
+    }
+
+    @Test
+    public void execute_中断後に再開_キーにタブや改行を含む() throws URISyntaxException, IOException, InterruptedException {
+
+        Path workDir = temporaryFolder.newFolder().toPath();
+        Path csvPath = workDir.resolve("issues.csv");
+        Files.write(csvPath, "Field1,Status Id\r\n\"A\tB\",1\r\n\"C\r\nD\",2\r\n".getBytes("UTF-8"));
+
+        Path configPath = Paths
+                .get(IssueLoadRunnerTest.class.getResource("update-status_id-with-custom_field.json").toURI());
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            // 2件目でエラー
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":1}]}"));
+            server.enqueue(new MockResponse());
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":2}]}"));
+            server.enqueue(new MockResponse().setResponseCode(422));
+
+            server.start();
+
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+            config.setJournal(true);
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            assertThatThrownBy(() -> runner.execute(config, csvPath))
+                    .isInstanceOf(IOException.class);
+
+            // 1行4列となるようにエスケープ
+            assertThat(Files.readAllLines(LoadJournal.journalPath(csvPath))).containsExactly(
+                    "1\tupdated\t1\tcf_1=A\\tB");
+        }
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":2}]}"));
+            server.enqueue(new MockResponse());
+
+            server.start();
+
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            int loadedCount = runner.execute(config, csvPath, true);
+
+            // 処理済みの1件目は飛ばす
+            assertThat(loadedCount).isEqualTo(1);
+            assertThat(server.getRequestCount()).isEqualTo(2);
+
+            assertThat(Files.readAllLines(LoadJournal.journalPath(csvPath))).containsExactly(
+                    "1\tupdated\t1\tcf_1=A\\tB",
+                    "2\tupdated\t2\tcf_1=C\\r\\nD");
+        }
+    }
+
+    @Test
+    public void execute_CSVに存在しない列() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.start();
+
+            Path configPath = Paths.get(IssueLoadRunnerTest.class.getResource("create-all_fields.json").toURI());
+            Config config = Config.of(configPath);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+
+            Path csvPath = Paths.get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI());
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+
+            // 1行目を処理する前にエラー
+            assertThatThrownBy(() -> runner.execute(config, csvPath))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageStartingWith("Mapping for Tracker not found");
+
+            assertThat(server.getRequestCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void execute_メモリマップでCSV読み込み() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":1}}"));
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":2}}"));
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+            Config config = Config.of(configPath);
+            config.setCsvEncoding("MS932");
+            config.setCsvReader(CsvReaderType.MAPPED);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+
+            // 囲み文字内の改行、エスケープされた囲み文字、使用しない列を含むMS932のCSV
+            Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+            Files.write(csvPath, (
+                    "Memo,Project,Subject\r\n"
+                            + "\"メモ\r\n1\",プロジェクト1,\"タイトル\r\n\"\"1\"\"\"\r\n"
+                            + "メモ2,プロジェクト2,ソ表示\r\n").getBytes("MS932"));
+
+            try {
+                IssueLoadRunner runner = new IssueLoadRunner();
+                runner.execute(config, csvPath);
+            } finally {
+                Files.delete(csvPath);
+            }
+
+            assertThat(server.getRequestCount()).isEqualTo(2);
+
+            assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo(
+                    "{\"issue\":{\"project_id\":\"1\",\"subject\":\"タイトル\\r\\n\\\"1\\\"\"}}");
+            assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo(
+                    "{\"issue\":{\"project_id\":\"2\",\"subject\":\"ソ表示\"}}");
+        }
+    }
+
+    @Test
+    public void parse_複数行の項目を含むCSVを並列に読み込み() throws URISyntaxException, IOException {
+
+        Path configPath = Paths
+                .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+        Config config = Config.of(configPath);
+
+        // チャンクが複数になるサイズで、チャンクの境界が囲み文字内の改行にかかるようなCSV
+        Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+        try {
+            StringBuilder csv = new StringBuilder("Project,Subject\r\n");
+            for (int i = 0; i < 100000; i++) {
+                if (i % 3 == 0) {
+                    csv.append("プロジェクト1,\"タイトル").append(i).append("\r\n\"\"次の行\"\"\n,\r\n\"\r\n");
+                } else {
+                    csv.append("プロジェクト2,タイトル").append(i).append("\n");
+                }
+            }
+            Files.write(csvPath, csv.toString().getBytes("UTF-8"));
+
+            List<IssueRecord> sequential = new ArrayList<>();
+            try (IssueRecords issueRecords = IssueRecords.parse(csvPath, config)) {
+                issueRecords.forEach(sequential::add);
+            }
+
+            config.setCsvReader(CsvReaderType.MAPPED);
+            config.setParallelParse(true);
+            List<IssueRecord> parallel = new ArrayList<>();
+            try (IssueRecords issueRecords = IssueRecords.parse(csvPath, config)) {
+                issueRecords.forEach(parallel::add);
+            }
+
+            assertThat(parallel).hasSize(100000).isEqualTo(sequential);
+            assertThat(parallel.get(99999).getRowNumber()).isEqualTo(100000);
+            assertThat(parallel.get(99999).getFields().get("subject")).isEqualTo("タイトル99999\r\n\"次の行\"\n,\r\n");
+
+        } finally {
+            Files.delete(csvPath);
+        }
+    }
+
+    @Test
+    public void execute_計測結果の出力() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":1}}"));
+            server.enqueue(new MockResponse().setResponseCode(201).setBody("{\"issue\":{\"id\":2}}"));
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+            Config config = Config.of(configPath);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+
+            Path summaryPath = temporaryFolder.newFile("metrics.json").toPath();
+            Path prometheusPath = temporaryFolder.newFile("metrics.prom").toPath();
+
+            MetricsSetting metricsSetting = new MetricsSetting();
+            metricsSetting.setSummaryFile(summaryPath.toString());
+            metricsSetting.setPrometheusFile(prometheusPath.toString());
+            // 0以下は処理終了時のみ出力
+            metricsSetting.setPrometheusIntervalSeconds(0);
+            config.setMetrics(metricsSetting);
+
+            Path csvPath = Paths.get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI());
+
+            try {
+                IssueLoadRunner runner = new IssueLoadRunner();
+                runner.execute(config, csvPath);
+
+                JsonNode summary = new ObjectMapper().readTree(summaryPath.toFile());
+
+                assertThat(summary.at("/counters/rows").asLong()).isEqualTo(2);
+                assertThat(summary.at("/counters/loaded").asLong()).isEqualTo(2);
+                assertThat(summary.at("/phases/convert/count").asLong()).isEqualTo(2);
+                assertThat(summary.at("/phases/create/count").asLong()).isEqualTo(2);
+                assertThat(summary.at("/endpoints/POST ~1issues.json/count").asLong()).isEqualTo(2);
+                assertThat(summary.at("/requests/0/status").asText()).isEqualTo("200");
+                assertThat(summary.at("/requests/1/status").asText()).isEqualTo("201");
+                assertThat(summary.at("/slowRequests")).hasSize(2);
+
+                assertThat(new String(Files.readAllBytes(prometheusPath), StandardCharsets.UTF_8))
+                        .contains("redmine_issue_loader_rows_total 2\n")
+                        .contains("redmine_issue_loader_request_seconds_count"
+                                + "{endpoint=\"POST /issues.json\",status=\"201\"} 1\n");
+
+            } finally {
+                Files.delete(summaryPath);
+                Files.delete(prometheusPath);
+            }
+        }
+    }
+
+    @Test
+    public void execute_進捗表示_行ごとの出力無し() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":1}}"));
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":2}}"));
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+            Config config = Config.of(configPath);
+            config.setProgressIntervalSeconds(60);
+            config.setRowOutput(false);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+
+            Path csvPath = Paths.get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+            int loadedCount = runner.execute(config, csvPath);
+
+            assertThat(loadedCount).isEqualTo(2);
+
+            // 終了時に最終的な進捗が出力される
+            assertThat(out.toString("UTF-8"))
+                    .doesNotContain("is created.")
+                    .startsWith("Progress: 2/~2 rows (100.0%), ")
+                    .contains(", 0 in flight, 0 errors, ETA 0:00:00");
+        }
+    }
+
+    @Test
+    public void validateCsv_全てのエラーを収集() throws URISyntaxException, IOException {
+
+        Path configPath = Paths.get(IssueLoadRunnerTest.class.getResource("create-all_fields.json").toURI());
+        Config config = Config.of(configPath);
+
+        Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+        try {
+            Files.write(csvPath, (
+                    "#,Project,Tracker,Status,Priority,Assignee,Category,Target version,Parent #,Subject,Description,"
+                            + "Start date,Due date,% Done,Private,Estimated time,Field1,Field2,Field3\r\n"
+                            + "1,プロジェクト1,トラッカー2,新規,通常,ユーザA,カテゴリ2,v2.0,,xxx,説明1,"
+                            + "2019/02/01,2019/02/20,10,true,1h30,A,a,C\r\n"
+                            + "2,プロジェクトX,トラッカー2,進行中,低め,,カテゴリ2,,,yyy,説明2,"
+                            + "2019/13/02,,abc,yes,,B,b,B\r\n"
+                            + "3,プロジェクト1,トラッカー3,解決,高め,ユーザB,カテゴリ1,v1.0,1,,説明3,"
+                            + "2019/03/12,2019/10/30,90,false,1d,C,c,A\r\n").getBytes("UTF-8"));
+
+            for (CsvReaderType csvReader : CsvReaderType.values()) {
+
+                config.setCsvReader(csvReader);
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+                ValidationResult result = runner.validateCsv(config, csvPath);
+
+                assertThat(result.isValid()).isFalse();
+                assertThat(result.getRowCount()).isEqualTo(3);
+                assertThat(result.getErrors()).extracting(ValidationError::toString).containsExactly(
+                        "Row 2 [Project]: Could not mapping \"プロジェクトX\" of field [Project].",
+                        "Row 2 [Start date]: 2019/13/02 is invalid date format.",
+                        "Row 2 [% Done]: abc is not a number between 0 and 100.",
+                        "Row 2 [Private]: yes is not a boolean (true or false).",
+                        "Row 3 [Subject]: Value is required when created.",
+                        "Row 3 [Estimated time]: 1d is not a valid number of hours.");
+
+                assertThat(out.toString("UTF-8"))
+                        .endsWith(String.format("Validation failed. 3 rows, 6 errors, 0 warnings.%n"));
+            }
+        } finally {
+            Files.delete(csvPath);
+        }
+    }
+
+    @Test
+    public void validateCsv_並列読み込み以外はチャンクに分割しない() throws URISyntaxException, IOException {
+
+        Path configPath = Paths.get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+        Config config = Config.of(configPath);
+        config.setCsvReader(CsvReaderType.MAPPED);
+
+        // 囲まれていない項目内の"と、囲まれた項目内の改行が、チャンクの区切り(4MB)の前後にある
+        StringBuilder csv = new StringBuilder("Project,Subject\r\n");
+        csv.append("プロジェクト1,タイトル\"1\r\n");
+        int rowCount = 1;
+        while (csv.length() < 2 * 1024 * 1024) {
+            csv.append("プロジェクト2,タイトル\r\n");
+            rowCount++;
+        }
+        csv.append("プロジェクト1,\"タイトル\r\n複数行\"\r\n");
+        csv.append("プロジェクト1,タイトル\"2\r\n");
+        rowCount += 2;
+
+        Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+        Files.write(csvPath, csv.toString().getBytes("UTF-8"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+        ValidationResult result = runner.validateCsv(config, csvPath);
+
+        // 1件ずつ読み込む場合と同じく、誤りは無い
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getRowCount()).isEqualTo(rowCount);
+    }
+
+    @Test
+    public void execute_事前確認でエラーの場合は登録しない() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("update-status_id-with-custom_field.json").toURI());
+            Config config = Config.of(configPath);
+            config.setValidateFirst(true);
+
+            // Mockに対してリクエスト送信するよう設定
+            config.setReadmineUrl(server.url("/").toString());
+
+            Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+            try {
+                Files.write(csvPath, "Field1,Status Id\nA,1\nB,2\nA,3\n,4\n".getBytes("UTF-8"));
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+
+                assertThatThrownBy(() -> runner.execute(config, csvPath))
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessage("1 errors were found in the CSV file.");
+
+                assertThat(out.toString("UTF-8")).isEqualTo(String.format(
+                        "Warning: Row 3: Primary key A is also used in row 1.%n"
+                                + "Row 4 [Field1]: Primary key is empty.%n"
+                                + "Validation failed. 4 rows, 1 errors, 1 warnings.%n"));
+
+            } finally {
+                Files.delete(csvPath);
+            }
+
+            assertThat(server.getRequestCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void execute_複数ファイルを共有の接続でまとめて登録() throws URISyntaxException, IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            for (int i = 1; i <= 4; i++) {
+                server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":" + i + "}}"));
+            }
+
+            server.start();
+
+            // CSVファイルと同じ名前の設定ファイルを置いたディレクトリを用意
+            Path workDir = temporaryFolder.newFolder().toPath();
+            String configJson = new String(
+                    Files.readAllBytes(Paths.get(
+                            IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI())),
+                    StandardCharsets.UTF_8)
+                            .replace("http://localhost", server.url("/").toString());
+            for (String name : new String[] { "issues1", "issues2" }) {
+                Files.write(workDir.resolve(name + ".json"), configJson.getBytes(StandardCharsets.UTF_8));
+                Files.copy(
+                        Paths.get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI()),
+                        workDir.resolve(name + ".csv"));
+            }
+
+            JobManifest manifest = JobManifest.of(workDir);
+            manifest.setParallelism(2);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            MultiFileLoadRunner runner = new MultiFileLoadRunner(new PrintStream(out, true, "UTF-8"));
+            List<JobResult> results = runner.execute(manifest);
+
+            assertThat(results).extracting(result -> result.getCsvPath().getFileName().toString())
+                    .containsExactly("issues1.csv", "issues2.csv");
+            assertThat(results).extracting(JobResult::getLoadedCount).containsExactly(2, 2);
+            assertThat(results).allMatch(JobResult::isSucceeded);
+
+            assertThat(server.getRequestCount()).isEqualTo(4);
+
+            // 行ごとの出力にはファイル名が付く
+            assertThat(out.toString("UTF-8"))
+                    .contains("[issues1.csv] ")
+                    .contains("[issues2.csv] ");
+        }
+    }
+
+    @Test
+    public void daemon_受信フォルダとHTTPで受け付けたファイルを登録() throws Exception {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            for (int i = 1; i <= 4; i++) {
+                server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":" + i + "}}"));
+            }
+
+            server.start();
+
+            Path workDir = temporaryFolder.newFolder().toPath();
+            String configJson = new String(
+                    Files.readAllBytes(Paths.get(
+                            IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI())),
+                    StandardCharsets.UTF_8)
+                            .replace("http://localhost", server.url("/").toString());
+            Files.write(workDir.resolve("config.json"), configJson.getBytes(StandardCharsets.UTF_8));
+            Path sourceCsvPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("issues-project_id-subject.csv").toURI());
+
+            DaemonSetting setting = new DaemonSetting();
+            setting.setBaseDirectory(workDir);
+            setting.setConfig("config.json");
+            setting.setHttpPort(0);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DaemonRunner daemonRunner = new DaemonRunner(setting, new PrintStream(out, true, "UTF-8"));
+            Thread daemonThread = new Thread(() -> {
+                try {
+                    daemonRunner.run();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            daemonThread.start();
+
+            try {
+                // 書き込み途中のファイルを処理しないよう、別の場所に作成してから移動
+                Files.copy(sourceCsvPath, workDir.resolve("issues1.csv"));
+                Files.move(workDir.resolve("issues1.csv"), workDir.resolve("inbox/issues1.csv"));
+
+                Path donePath = workDir.resolve("done/issues1.csv");
+                for (int i = 0; i < 100 && !Files.exists(donePath); i++) {
+                    Thread.sleep(100);
+                }
+                assertThat(donePath).exists();
+                assertThat(workDir.resolve("inbox/issues1.csv")).doesNotExist();
+
+                // HTTPで受け付けた場合は、完了まで待って結果が返る
+                Files.copy(sourceCsvPath, workDir.resolve("issues2.csv"));
+                Response response = new OkHttpClient().newCall(
+                        new Request.Builder()
+                                .url("http://127.0.0.1:" + daemonRunner.getHttpPort() + "/jobs")
+                                .post(RequestBody.create(
+                                        MediaType.parse("application/json"),
+                                        "{\"csv\":\"issues2.csv\"}"))
+                                .build())
+                        .execute();
+
+                assertThat(response.code()).isEqualTo(200);
+                JsonNode result = new ObjectMapper().readTree(response.body().string());
+                assertThat(result.get("loadedCount").asInt()).isEqualTo(2);
+                assertThat(result.get("error").isNull()).isTrue();
+
+            } finally {
+                daemonRunner.close();
+                daemonThread.join();
+            }
+
+            assertThat(server.getRequestCount()).isEqualTo(4);
+            assertThat(out.toString("UTF-8"))
+                    .contains("issues1.csv: 2 issues were loaded.")
+                    .contains("issues2.csv: 2 issues were loaded.");
+        }
+    }
+
+    @Test
+    public void execute_前回から変更の無い行は送信しない() throws URISyntaxException, IOException, InterruptedException {
+
+        Path workDir = temporaryFolder.newFolder().toPath();
+        Path csvPath = workDir.resolve("issues.csv");
+        Files.copy(Paths.get(IssueLoadRunnerTest.class.getResource("issues-status_id.csv").toURI()), csvPath);
+
+        Path configPath = Paths
+                .get(IssueLoadRunnerTest.class.getResource("update-status_id-with-custom_field.json").toURI());
+
+        // 1回目は全行を更新
+        try (MockWebServer server = new MockWebServer()) {
+
+            for (int i = 1; i <= 3; i++) {
+                server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":" + i + "}]}"));
+                server.enqueue(new MockResponse());
+            }
+
+            server.start();
+
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+            config.setFingerprint(new FingerprintSetting());
+            config.getFingerprint().setFile(workDir.resolve("issues.fingerprint").toString());
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            assertThat(runner.execute(config, csvPath)).isEqualTo(3);
+            assertThat(server.getRequestCount()).isEqualTo(6);
+        }
+
+        // 2回目は変更された行のみ
+        Files.write(csvPath, "Field1,Status Id\nA,1\nB,5\nC,3\n".getBytes(StandardCharsets.UTF_8));
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":2}]}"));
+            server.enqueue(new MockResponse());
+
+            server.start();
+
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+            config.setFingerprint(new FingerprintSetting());
+            config.getFingerprint().setFile(workDir.resolve("issues.fingerprint").toString());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+            assertThat(runner.execute(config, csvPath)).isEqualTo(1);
+
+            assertThat(server.getRequestCount()).isEqualTo(2);
+            assertThat(server.takeRequest().getPath()).isEqualTo("/issues.json?status_id=*&cf_1=B");
+            assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo(
+                    "{\"issue\":{\"status_id\":\"5\"}}");
+
+            assertThat(out.toString("UTF-8")).contains("2 rows were unchanged since the last run and skipped.");
+        }
+    }
+
+    @Test
+    public void execute_前回から変更の無い行は送信しない_同じキーの行が複数() throws URISyntaxException, IOException {
+
+        Path workDir = temporaryFolder.newFolder().toPath();
+        Path csvPath = workDir.resolve("issues.csv");
+
+        Path configPath = Paths
+                .get(IssueLoadRunnerTest.class.getResource("update-status_id-with-custom_field.json").toURI());
+
+        for (String csv : new String[] { "Field1,Status Id\nA,2\n", "Field1,Status Id\nA,1\nA,2\n" }) {
+
+            Files.write(csvPath, csv.getBytes(StandardCharsets.UTF_8));
+
+            try (MockWebServer server = new MockWebServer()) {
+
+                List<String> updateBodies = Collections.synchronizedList(new ArrayList<>());
+
+                server.setDispatcher(new Dispatcher() {
+                    @Override
+                    public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+
+                        if (request.getMethod().equals("GET")) {
+                            // 前の行の更新が終わる前に、後ろの行が確認されるよう遅らせる
+                            Thread.sleep(100);
+                            return new MockResponse().setBody("{\"issues\":[{\"id\":1}]}");
+                        }
+
+                        updateBodies.add(request.getBody().readUtf8());
+                        return new MockResponse();
+                    }
+                });
+
+                server.start();
+
+                Config config = Config.of(configPath);
+                config.setReadmineUrl(server.url("/").toString());
+                config.setParallelism(4);
+                config.setFingerprint(new FingerprintSetting());
+                config.getFingerprint().setFile(workDir.resolve("issues.fingerprint").toString());
+
+                IssueLoadRunner runner = new IssueLoadRunner();
+                runner.execute(config, csvPath);
+
+                // 2回目は、最初の行の送信前に前回と同じ内容の後ろの行が読み飛ばされず、最後の行の内容となる
+                assertThat(updateBodies).last().isEqualTo("{\"issue\":{\"status_id\":\"2\"}}");
+                assertThat(updateBodies).hasSize(csv.split("\n").length - 1);
+            }
+        }
+    }
+
+    @Test
+    public void execute_疑似Redmineに対して障害発生時も再試行して更新() throws URISyntaxException, IOException {
+
+        try (FakeRedmine server = new FakeRedmine()) {
+
+            server.start();
+
+            for (String value : new String[] { "A", "B", "C" }) {
+                Map<String, Object> fields = new HashMap<>();
+                fields.put("project_id", "1");
+                fields.put("subject", "題名" + value);
+                fields.put("custom_fields", Collections.singletonList(customField(1, value)));
+                server.addIssue(fields);
+            }
+
+            // 一定の割合で過負荷の応答を返す
+            server.setFaults(FakeRedmine.Faults.builder()
+                    .latencyMillis(1)
+                    .jitterMillis(2)
+                    .serviceUnavailableRate(0.2)
+                    .build());
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("update-status_id-with-custom_field.json").toURI());
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url());
+            config.setParallelism(3);
+            config.setRetry(new RetrySetting());
+            config.getRetry().setMaxAttempts(10);
+            config.getRetry().setInitialBackoffMillis(1);
+            config.getRetry().setInitialBudget(100);
+
+            Path csvPath = Paths.get(IssueLoadRunnerTest.class.getResource("issues-status_id.csv").toURI());
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            assertThat(runner.execute(config, csvPath)).isEqualTo(3);
+
+            // 検索と更新が1行ずつ(再試行分を含む)
+            assertThat(server.getRequestCount(FakeRedmine.SEARCH_ENDPOINT)).isGreaterThanOrEqualTo(3);
+            assertThat(server.getRequestCount(FakeRedmine.UPDATE_ENDPOINT)).isGreaterThanOrEqualTo(3);
+
+            assertThat(server.getIssue(1).get("status")).isEqualTo(Collections.singletonMap("id", 1));
+            assertThat(server.getIssue(2).get("status")).isEqualTo(Collections.singletonMap("id", 2));
+            assertThat(server.getIssue(3).get("status")).isEqualTo(Collections.singletonMap("id", 3));
+        }
+    }
+
+    private static Map<String, Object> customField(int id, String value) {
+
+        Map<String, Object> customField = new HashMap<>();
+        customField.put("id", id);
+        customField.put("value", value);
+        return customField;
+    }
+
+    @Test
+    public void execute_名称からIDへの変換表をRedmineから取得してキャッシュ() throws URISyntaxException, IOException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            List<String> createBodies = Collections.synchronizedList(new ArrayList<>());
+
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+
+                    String path = request.getPath();
+                    if (path.startsWith("/projects.json")) {
+                        // 1ページ2件として、2ページに分けて返す
+                        return new MockResponse().setBody(path.contains("offset=0")
+                                ? "{\"projects\":[{\"id\":1,\"name\":\"プロジェクト1\",\"identifier\":\"p1\"},"
+                                        + "{\"id\":2,\"name\":\"プロジェクト2\",\"identifier\":\"p2\"}],"
+                                        + "\"total_count\":3,\"offset\":0,\"limit\":2}"
+                                : "{\"projects\":[{\"id\":3,\"name\":\"プロジェクト3\",\"identifier\":\"p3\"}],"
+                                        + "\"total_count\":3,\"offset\":2,\"limit\":2}");
+                    }
+                    if (path.startsWith("/trackers.json")) {
+                        return new MockResponse().setBody(
+                                "{\"trackers\":[{\"id\":1,\"name\":\"バグ\"},{\"id\":2,\"name\":\"機能\"}]}");
+                    }
+
+                    createBodies.add(request.getBody().readUtf8());
+                    return new MockResponse().setBody("{\"issue\":{\"id\":" + createBodies.size() + "}}");
+                }
+            });
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+
+            // プロジェクトは設定ファイルの変換表と合わせて使用
+            config.getFields().get(0).setAutoResolve(true);
+
+            FieldSetting trackerField = new FieldSetting();
+            trackerField.setHeaderName("Tracker");
+            trackerField.setType(FieldType.TRACKER_ID);
+            trackerField.setAutoResolve(true);
+            config.getFields().add(trackerField);
+
+            Path cachePath = temporaryFolder.newFolder().toPath().resolve("names.json");
+            config.setNameCache(new NameCacheSetting());
+            config.getNameCache().setFile(cachePath.toString());
+
+            Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+            Files.write(csvPath, Arrays.asList(
+                    "Project,Subject,Tracker",
+                    "p3,タイトル1,バグ",
+                    "プロジェクト1,タイトル2,機能"),
+                    StandardCharsets.UTF_8);
+
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+                assertThat(runner.execute(config, csvPath)).isEqualTo(2);
+
+                assertThat(out.toString("UTF-8")).contains("8 names were resolved from Redmine.");
+            }
+
+            assertThat(createBodies).containsExactly(
+                    "{\"issue\":{\"project_id\":\"3\",\"subject\":\"タイトル1\",\"tracker_id\":\"1\"}}",
+                    "{\"issue\":{\"project_id\":\"1\",\"subject\":\"タイトル2\",\"tracker_id\":\"2\"}}");
+
+            // 変換表の取得は行数に関わらず一覧ごと(ページごと)のみ
+            assertThat(server.getRequestCount()).isEqualTo(3 + 2);
+            assertThat(cachePath).exists();
+
+            // 有効期限内はキャッシュファイルを使用し、Redmineから取得し直さない
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+                assertThat(runner.execute(config, csvPath)).isEqualTo(2);
+
+                assertThat(out.toString("UTF-8")).contains("8 names were resolved from the cache file.");
+            }
+
+            assertThat(server.getRequestCount()).isEqualTo(3 + 2 + 2);
+        }
+    }
+
+    @Test
+    public void execute_バージョンはプロジェクトごとの名称からIDへ変換() throws URISyntaxException, IOException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            List<String> createBodies = Collections.synchronizedList(new ArrayList<>());
+
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+
+                    String path = request.getPath();
+                    if (path.startsWith("/projects.json")) {
+                        return new MockResponse().setBody(
+                                "{\"projects\":[{\"id\":1,\"name\":\"プロジェクト1\"},{\"id\":2,\"name\":\"プロジェクト2\"}],"
+                                        + "\"total_count\":2,\"offset\":0,\"limit\":100}");
+                    }
+                    // どちらのプロジェクトにも同じ名称のバージョンがある
+                    if (path.startsWith("/projects/1/versions.json")) {
+                        return new MockResponse().setBody(
+                                "{\"versions\":[{\"id\":11,\"name\":\"1.0\"},{\"id\":12,\"name\":\"2.0\"}]}");
+                    }
+                    if (path.startsWith("/projects/2/versions.json")) {
+                        return new MockResponse().setBody("{\"versions\":[{\"id\":21,\"name\":\"1.0\"}]}");
+                    }
+
+                    createBodies.add(request.getBody().readUtf8());
+                    return new MockResponse().setBody("{\"issue\":{\"id\":" + createBodies.size() + "}}");
+                }
+            });
+
+            server.start();
+
+            Path configPath = Paths
+                    .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+            Config config = Config.of(configPath);
+            config.setReadmineUrl(server.url("/").toString());
+
+            FieldSetting versionField = new FieldSetting();
+            versionField.setHeaderName("Version");
+            versionField.setType(FieldType.FIXED_VERSION_ID);
+            versionField.setAutoResolve(true);
+            config.getFields().add(versionField);
+
+            Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+            Files.write(csvPath, Arrays.asList(
+                    "Project,Subject,Version",
+                    "プロジェクト1,タイトル1,1.0",
+                    "プロジェクト2,タイトル2,1.0"),
+                    StandardCharsets.UTF_8);
+
+            IssueLoadRunner runner = new IssueLoadRunner();
+            assertThat(runner.execute(config, csvPath)).isEqualTo(2);
+
+            assertThat(createBodies).containsExactlyInAnyOrder(
+                    "{\"issue\":{\"project_id\":\"1\",\"subject\":\"タイトル1\",\"fixed_version_id\":\"11\"}}",
+                    "{\"issue\":{\"project_id\":\"2\",\"subject\":\"タイトル2\",\"fixed_version_id\":\"21\"}}");
+
+            // 別のプロジェクトのバージョンは指定できない
+            Files.write(csvPath, Arrays.asList(
+                    "Project,Subject,Version",
+                    "プロジェクト2,タイトル3,2.0"),
+                    StandardCharsets.UTF_8);
+
+            ValidationResult result = runner.validateCsv(config, csvPath);
+            assertThat(result.getErrors()).extracting(ValidationError::toString).containsExactly(
+                    "Row 1 [Version]: Could not mapping \"2.0\" of field [Version] in project 2.");
+        }
+    }
+
+    @Test
+    public void execute_同じCSV内の行を親として参照() throws URISyntaxException, IOException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            // 件名→作成したチケット
+            Map<String, JsonNode> createdIssues = new ConcurrentHashMap<>();
+            AtomicInteger issueIds = new AtomicInteger(100);
+
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+
+                    int issueId = issueIds.incrementAndGet();
+                    try {
+                        JsonNode issue = new ObjectMapper().readTree(request.getBody().readUtf8()).path("issue");
+                        ((ObjectNode) issue).put("id", issueId);
+                        createdIssues.put(issue.path("subject").asText(), issue);
+                    } catch (IOException e) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                    return new MockResponse().setBody("{\"issue\":{\"id\":" + issueId + "}}");
+                }
+            });
+
+            server.start();
+
+            Config config = parentReferenceConfig(server);
+
+            // 子の行が親の行より前にあるものや、既存のチケットを親とするものも含める
+            Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+            Files.write(csvPath, Arrays.asList(
+                    "Key,Project,Subject,Parent",
+                    "C1,プロジェクト1,子1,P1",
+                    "P1,プロジェクト1,親1,",
+                    "C2,プロジェクト1,子2,P1",
+                    "G1,プロジェクト1,孫1,C1",
+                    "E1,プロジェクト1,既存の子,10"),
+                    StandardCharsets.UTF_8);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+            assertThat(runner.execute(config, csvPath)).isEqualTo(5);
+
+            assertThat(out.toString("UTF-8")).contains("3 rows reference a parent row in the CSV file.");
+
+            assertThat(createdIssues).hasSize(5);
+            assertThat(createdIssues.get("親1").path("parent_issue_id").asText()).isEmpty();
+            assertThat(createdIssues.get("子1").path("parent_issue_id").asInt())
+                    .isEqualTo(createdIssues.get("親1").path("id").asInt());
+            assertThat(createdIssues.get("子2").path("parent_issue_id").asInt())
+                    .isEqualTo(createdIssues.get("親1").path("id").asInt());
+            assertThat(createdIssues.get("孫1").path("parent_issue_id").asInt())
+                    .isEqualTo(createdIssues.get("子1").path("id").asInt());
+            assertThat(createdIssues.get("既存の子").path("parent_issue_id").asInt()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    public void execute_親の参照が循環または存在しない場合は登録前にエラー() throws URISyntaxException, IOException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.start();
+
+            Config config = parentReferenceConfig(server);
+
+            Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+            Files.write(csvPath, Arrays.asList(
+                    "Key,Project,Subject,Parent",
+                    "A,プロジェクト1,タイトル1,B",
+                    "B,プロジェクト1,タイトル2,A",
+                    "C,プロジェクト1,タイトル3,Z"),
+                    StandardCharsets.UTF_8);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+
+            assertThatThrownBy(() -> runner.execute(config, csvPath))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("2 errors were found in the parent references.");
+
+            assertThat(out.toString("UTF-8"))
+                    .contains("Parent references are circular. (rows 1 -> 2 -> 1)")
+                    .contains("Parent Z was not found in the CSV file.");
+
+            // 1件も登録しない
+            assertThat(server.getRequestCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void validateCsv_親の参照の誤りを値の誤りのある行と合わせて収集() throws URISyntaxException, IOException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.start();
+
+            Config config = parentReferenceConfig(server);
+
+            // 変換できない値の行があっても、行をまたいだ参照の誤りまで確認する
+            Path csvPath = temporaryFolder.newFile("issues.csv").toPath();
+            Files.write(csvPath, Arrays.asList(
+                    "Key,Project,Subject,Parent",
+                    "A,プロジェクトX,タイトル1,",
+                    "B,プロジェクト1,タイトル2,Z",
+                    "C,プロジェクト1,タイトル3,A"),
+                    StandardCharsets.UTF_8);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IssueLoadRunner runner = new IssueLoadRunner(new PrintStream(out, true, "UTF-8"));
+            ValidationResult result = runner.validateCsv(config, csvPath);
+
+            assertThat(result.getErrors()).extracting(ValidationError::toString).containsExactly(
+                    "Row 1 [Project]: Could not mapping \"プロジェクトX\" of field [Project].",
+                    "Row 2 [Parent]: Parent Z was not found in the CSV file.");
+
+            assertThat(out.toString("UTF-8"))
+                    .endsWith(String.format("Validation failed. 3 rows, 2 errors, 0 warnings.%n"));
+        }
+    }
+
+    private Config parentReferenceConfig(MockWebServer server) throws URISyntaxException, IOException {
+
+        Path configPath = Paths
+                .get(IssueLoadRunnerTest.class.getResource("create-project_id-subject.json").toURI());
+        Config config = Config.of(configPath);
+        config.setReadmineUrl(server.url("/").toString());
+        config.setParallelism(4);
+
+        FieldSetting parentField = new FieldSetting();
+        parentField.setHeaderName("Parent");
+        parentField.setType(FieldType.PARENT_ISSUE_ID);
+        config.getFields().add(parentField);
+
+        config.setParentReference(new ParentReferenceSetting());
+        config.getParentReference().setKeyHeaderName("Key");
+
+        return config;
+    }
 }
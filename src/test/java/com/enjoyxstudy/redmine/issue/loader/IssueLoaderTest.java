@@ -4,16 +4,31 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.junit.Test;
 
 import com.enjoyxstudy.redmine.issue.loader.client.Client;
+import com.enjoyxstudy.redmine.issue.loader.client.ConcurrencyLimiter;
+import com.enjoyxstudy.redmine.issue.loader.client.RetryPolicy;
+import com.enjoyxstudy.redmine.issue.loader.input.AdaptiveConcurrencySetting;
 import com.enjoyxstudy.redmine.issue.loader.input.BasicAuth;
 import com.enjoyxstudy.redmine.issue.loader.input.CustomField;
 import com.enjoyxstudy.redmine.issue.loader.input.FieldType;
 import com.enjoyxstudy.redmine.issue.loader.input.IssueId;
 import com.enjoyxstudy.redmine.issue.loader.input.IssueTargetFieldsBuilder;
+import com.enjoyxstudy.redmine.issue.loader.input.RetrySetting;
 
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -454,4 +469,412 @@ public class IssueLoaderTest {
                     .hasMessageStartingWith("Failed to call Redmine API.");
         }
     }
+
+    @Test
+    public void update_事前取得した索引を使用() throws IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            // 2ページに分けて返却(Bは複数チケットで重複)
+            server.enqueue(new MockResponse().setBody(
+                    "{\"issues\":[{\"id\":1,\"custom_fields\":[{\"id\":1,\"value\":\"A\"}]},"
+                            + "{\"id\":2,\"custom_fields\":[{\"id\":1,\"value\":\"B\"},{\"id\":2,\"value\":\"A\"}]}],"
+                            + "\"total_count\":3,\"offset\":0,\"limit\":2}"));
+            server.enqueue(new MockResponse().setBody(
+                    "{\"issues\":[{\"id\":3,\"custom_fields\":[{\"id\":1,\"value\":\"B\"}]}],"
+                            + "\"total_count\":3,\"offset\":2,\"limit\":2}"));
+            server.enqueue(new MockResponse());
+
+            server.start();
+
+            final String apiKey = "API1234567890";
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url("/").toString())
+                    .apiKey(apiKey)
+                    .build();
+
+            CustomFieldIndex index = CustomFieldIndex.load(client, 1, Arrays.asList(5));
+            assertThat(index.getSize()).isEqualTo(2);
+
+            IssueLoader loader = new IssueLoader(client, index, false);
+
+            IssueId issueId = loader.update(
+                    new CustomField(1, "A"),
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.SUBJECT, "タイトル")
+                            .build());
+
+            assertThat(issueId).isEqualTo(new IssueId(1));
+
+            // 例外がスローされることを確認
+            assertThatThrownBy(() -> {
+                loader.update(
+                        new CustomField(1, "B"),
+                        new IssueTargetFieldsBuilder()
+                                .field(FieldType.SUBJECT, "タイトル")
+                                .build());
+            })
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("There are multiple target issue. CustomField(id=1, value=B)");
+
+            // 検索はせずに更新のみ
+            assertThat(server.getRequestCount()).isEqualTo(3);
+
+            {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("GET");
+                assertThat(request.getPath()).isEqualTo("/issues.json?status_id=*&limit=100&offset=0&project_id=5");
+            }
+            {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("GET");
+                assertThat(request.getPath()).isEqualTo("/issues.json?status_id=*&limit=100&offset=2&project_id=5");
+            }
+            {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("PUT");
+                assertThat(request.getPath()).isEqualTo("/issues/1.json");
+                assertThat(request.getBody().readUtf8()).isEqualTo("{\"issue\":{\"subject\":\"タイトル\"}}");
+            }
+        }
+    }
+
+    @Test
+    public void update_差分更新() throws IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            String currentIssue = "{\"issues\":[{\"id\":2,\"project\":{\"id\":1,\"name\":\"A\"},\"status\":{\"id\":3,\"name\":\"B\"},"
+                    + "\"subject\":\"タイトル\",\"estimated_hours\":10.0,\"start_date\":\"2012-12-12\","
+                    + "\"custom_fields\":[{\"id\":1,\"name\":\"C\",\"value\":\"カスタム1\"},{\"id\":2,\"name\":\"D\",\"value\":\"\"}]}]}";
+
+            server.enqueue(new MockResponse().setBody(currentIssue));
+            server.enqueue(new MockResponse().setBody(currentIssue));
+            server.enqueue(new MockResponse());
+
+            server.start();
+
+            final String apiKey = "API1234567890";
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url("/").toString())
+                    .apiKey(apiKey)
+                    .build();
+
+            IssueLoader loader = new IssueLoader(client, null, true);
+
+            // 全て同じ値
+            IssueId issueId1 = loader.update(
+                    new IssueId(2),
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.PROJECT_ID, "1")
+                            .field(FieldType.STATUS_ID, "3")
+                            .field(FieldType.SUBJECT, "タイトル")
+                            .field(FieldType.ESTIMATED_HOURS, "10")
+                            .field(FieldType.DUE_DATE, "")
+                            .customField(new CustomField(1, "カスタム1"))
+                            .customField(new CustomField(2, ""))
+                            .build());
+
+            // ステータスとカスタムフィールドの一部が異なる
+            IssueId issueId2 = loader.update(
+                    new IssueId(2),
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.PROJECT_ID, "1")
+                            .field(FieldType.STATUS_ID, "4")
+                            .field(FieldType.SUBJECT, "タイトル")
+                            .customField(new CustomField(1, "カスタム1"))
+                            .customField(new CustomField(2, "x"))
+                            .build());
+
+            assertThat(issueId1).isEqualTo(new IssueId(2));
+            assertThat(issueId2).isEqualTo(new IssueId(2));
+            assertThat(loader.getUnchangedCount().sum()).isEqualTo(1);
+            assertThat(loader.getChangedCount().sum()).isEqualTo(1);
+
+            assertThat(server.getRequestCount()).isEqualTo(3);
+
+            {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("GET");
+                assertThat(request.getPath()).isEqualTo("/issues.json?status_id=*&issue_id=2");
+            }
+            {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("GET");
+                assertThat(request.getPath()).isEqualTo("/issues.json?status_id=*&issue_id=2");
+            }
+            {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("PUT");
+                assertThat(request.getPath()).isEqualTo("/issues/2.json");
+                assertThat(request.getBody().readUtf8()).isEqualTo(
+                        "{\"issue\":{\"status_id\":\"4\",\"custom_fields\":[{\"id\":2,\"value\":\"x\"}]}}");
+            }
+        }
+    }
+
+    @Test
+    public void update_差分更新_予定工数の時間の形式() throws IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            String currentIssue = "{\"issues\":[{\"id\":2,\"estimated_hours\":1.5}]}";
+
+            server.enqueue(new MockResponse().setBody(currentIssue));
+            server.enqueue(new MockResponse().setBody(currentIssue));
+            server.enqueue(new MockResponse().setBody(currentIssue));
+            server.enqueue(new MockResponse());
+
+            server.start();
+
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url("/").toString())
+                    .apiKey("API1234567890")
+                    .build();
+
+            IssueLoader loader = new IssueLoader(client, null, true);
+
+            // Redmineと同じく時間に換算して比較
+            loader.update(new IssueId(2), new IssueTargetFieldsBuilder()
+                    .field(FieldType.ESTIMATED_HOURS, "1:30")
+                    .build());
+            loader.update(new IssueId(2), new IssueTargetFieldsBuilder()
+                    .field(FieldType.ESTIMATED_HOURS, "1h30")
+                    .build());
+            loader.update(new IssueId(2), new IssueTargetFieldsBuilder()
+                    .field(FieldType.ESTIMATED_HOURS, "2h")
+                    .build());
+
+            assertThat(loader.getUnchangedCount().sum()).isEqualTo(2);
+            assertThat(loader.getChangedCount().sum()).isEqualTo(1);
+
+            assertThat(server.getRequestCount()).isEqualTo(4);
+
+            server.takeRequest();
+            server.takeRequest();
+            server.takeRequest();
+            {
+                RecordedRequest request = server.takeRequest();
+                assertThat(request.getMethod()).isEqualTo("PUT");
+                assertThat(request.getBody().readUtf8()).isEqualTo("{\"issue\":{\"estimated_hours\":\"2h\"}}");
+            }
+        }
+    }
+
+    @Test
+    public void create_レスポンスにID以外の項目あり() throws IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setBody(
+                    "{\"issue\":{\"project\":{\"id\":1,\"name\":\"A\"},\"custom_fields\":[{\"id\":1,\"value\":[\"x\"]}],"
+                            + "\"subject\":\"タイトル\",\"id\":5,\"description\":\"説明\"}}"));
+
+            server.start();
+
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url("/").toString())
+                    .apiKey("API1234567890")
+                    .build();
+
+            IssueLoader loader = new IssueLoader(client);
+            IssueId issueId = loader.create(
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.PROJECT_ID, "1")
+                            .field(FieldType.SUBJECT, "タイトル")
+                            .build());
+
+            assertThat(issueId).isEqualTo(new IssueId(5));
+
+            RecordedRequest request = server.takeRequest();
+            assertThat(request.getHeader("Content-Length")).isEqualTo(
+                    String.valueOf("{\"issue\":{\"project_id\":\"1\",\"subject\":\"タイトル\"}}"
+                            .getBytes(StandardCharsets.UTF_8).length));
+        }
+    }
+
+    @Test
+    public void create_過負荷時は同時実行数を減らして再送() throws IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+            server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+            server.enqueue(new MockResponse().setBody("{\"issue\":{\"id\":2}}"));
+
+            server.start();
+
+            AdaptiveConcurrencySetting setting = new AdaptiveConcurrencySetting();
+            setting.setInitialLimit(8);
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(setting);
+
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url("/").toString())
+                    .apiKey("API1234567890")
+                    .limiter(limiter)
+                    .build();
+
+            IssueLoader loader = new IssueLoader(client);
+            IssueId issueId = loader.create(
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.PROJECT_ID, "1")
+                            .field(FieldType.SUBJECT, "タイトル")
+                            .build());
+
+            assertThat(issueId).isEqualTo(new IssueId(2));
+            assertThat(server.getRequestCount()).isEqualTo(3);
+
+            // 過負荷の度に半分に(応答時間が未計測なので連続しても減らす)
+            assertThat(limiter.getLimit()).isEqualTo(2);
+            assertThat(limiter.getInFlight()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void update_通信エラー時は再試行() throws IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            server.enqueue(new MockResponse().setResponseCode(500));
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":2}]}"));
+            server.enqueue(new MockResponse().setResponseCode(502));
+            server.enqueue(new MockResponse());
+
+            server.start();
+
+            RetrySetting setting = new RetrySetting();
+            setting.setInitialBackoffMillis(1);
+
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url("/").toString())
+                    .apiKey("API1234567890")
+                    .retryPolicy(new RetryPolicy(setting))
+                    .build();
+
+            IssueLoader loader = new IssueLoader(client);
+            IssueId issueId = loader.update(
+                    new IssueId(2),
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.SUBJECT, "タイトル")
+                            .build());
+
+            assertThat(issueId).isEqualTo(new IssueId(2));
+            assertThat(server.getRequestCount()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    public void create_再試行時は目印で作成済みか確認() throws IOException, InterruptedException {
+
+        try (MockWebServer server = new MockWebServer()) {
+
+            // 作成されたが応答がエラー -> 目印で検索すると見つかる
+            server.enqueue(new MockResponse().setResponseCode(500));
+            server.enqueue(new MockResponse().setBody("{\"issues\":[{\"id\":7}]}"));
+
+            server.start();
+
+            RetrySetting setting = new RetrySetting();
+            setting.setInitialBackoffMillis(1);
+
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url("/").toString())
+                    .apiKey("API1234567890")
+                    .retryPolicy(new RetryPolicy(setting))
+                    .idempotencyCustomFieldId(9)
+                    .build();
+
+            IssueLoader loader = new IssueLoader(client);
+            IssueId issueId = loader.create(
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.PROJECT_ID, "1")
+                            .field(FieldType.SUBJECT, "タイトル")
+                            .build());
+
+            assertThat(issueId).isEqualTo(new IssueId(7));
+            assertThat(server.getRequestCount()).isEqualTo(2);
+
+            String body = server.takeRequest().getBody().readUtf8();
+            assertThat(body).matches(
+                    "\\{\"issue\":\\{\"project_id\":\"1\",\"subject\":\"タイトル\",\"custom_fields\":\\[\\{\"id\":9,\"value\":\"[0-9a-f-]{36}\"\\}\\]\\}\\}");
+            String marker = body.replaceAll(".*\"value\":\"([0-9a-f-]{36})\".*", "$1");
+
+            assertThat(server.takeRequest().getPath()).isEqualTo("/issues.json?status_id=*&cf_9=" + marker);
+        }
+    }
+
+    @Test
+    public void updateAsync_多数のチケットを応答を待たずに並行して更新() throws IOException {
+
+        try (FakeRedmine server = new FakeRedmine()) {
+
+            server.start();
+
+            int issueCount = 300;
+            for (int i = 1; i <= issueCount; i++) {
+                Map<String, Object> customField = new HashMap<>();
+                customField.put("id", 1);
+                customField.put("value", "KEY-" + i);
+
+                Map<String, Object> fields = new HashMap<>();
+                fields.put("project_id", "1");
+                fields.put("subject", "題名" + i);
+                fields.put("custom_fields", Collections.singletonList(customField));
+                server.addIssue(fields);
+            }
+
+            server.setFaults(FakeRedmine.Faults.builder()
+                    .latencyMillis(20)
+                    .build());
+
+            // 同時に送信する数はDispatcherで指定(送信待ちの間もスレッドは使わない)
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(100);
+            dispatcher.setMaxRequestsPerHost(100);
+
+            Client client = Client.builder()
+                    .redmineBaseUrl(server.url())
+                    .apiKey("API1234567890")
+                    .httpClient(new OkHttpClient.Builder().dispatcher(dispatcher).build())
+                    .build();
+
+            IssueLoader loader = new IssueLoader(client);
+
+            List<CompletableFuture<IssueId>> futures = new ArrayList<>();
+            for (int i = 1; i <= issueCount; i++) {
+                futures.add(loader.updateAsync(
+                        new CustomField(1, "KEY-" + i),
+                        new IssueTargetFieldsBuilder()
+                                .field(FieldType.STATUS_ID, "2")
+                                .build()));
+            }
+            CompletableFuture<IssueId> created = loader.createAsync(
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.PROJECT_ID, "1")
+                            .field(FieldType.SUBJECT, "新規")
+                            .build());
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+            for (int i = 1; i <= issueCount; i++) {
+                assertThat(futures.get(i - 1).join()).isEqualTo(new IssueId(i));
+                assertThat(server.getIssue(i).get("status")).isEqualTo(Collections.singletonMap("id", 2));
+            }
+            assertThat(created.join()).isEqualTo(new IssueId(issueCount + 1));
+
+            assertThat(server.getRequestCount(FakeRedmine.SEARCH_ENDPOINT)).isEqualTo(issueCount);
+            assertThat(server.getRequestCount(FakeRedmine.UPDATE_ENDPOINT)).isEqualTo(issueCount);
+
+            // キーに一致するチケットが無い場合は、例外で完了する
+            assertThatThrownBy(() -> loader.updateAsync(
+                    new CustomField(1, "KEY-X"),
+                    new IssueTargetFieldsBuilder()
+                            .field(FieldType.STATUS_ID, "2")
+                            .build())
+                    .join())
+                            .isInstanceOf(CompletionException.class)
+                            .hasCauseInstanceOf(IllegalStateException.class)
+                            .hasMessageContaining("The target issue was not found.");
+        }
+    }
 }